@@ -0,0 +1,79 @@
+import org.lwjgl.glfw.GLFW;
+
+import java.util.Locale;
+
+// Headless regression check for GC stutter: runs the per-tick work of the game loop on a seeded
+// autopilot world and fails if any steady-state tick allocates more than the budget
+class AllocationCheck {
+    private static final int WARMUP_TICKS = 100_000; // enough for the JIT to settle, escape analysis included
+    private static final int MEASURED_TICKS = 50_000;
+
+    private final GameOptions options;
+    private final AllocationProbe probe = new AllocationProbe();
+    private final InputQueue input;
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final float step;
+    private GameWorld world;
+    private long games = 0;
+
+    AllocationCheck(GameOptions options) {
+        this.options = options;
+        this.input = new InputQueue(options.bindings);
+        this.step = 1.0f / options.tickRate;
+    }
+
+    // Returns true if every measured tick stayed within the budget
+    boolean run() {
+        if (!probe.isSupported()) {
+            System.err.println("This JVM can't report per-thread allocation; nothing to check");
+            return false;
+        }
+
+        world = new GameWorld(options.tuning, ObstacleArchetype.load(options.archetypeFile), options.seed, true);
+        for (int tick = 0; tick < WARMUP_TICKS; tick++) {
+            runTick(tick);
+        }
+
+        long total = 0;
+        long max = 0;
+        int overBudget = 0;
+        for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+            long bytes = runTick(WARMUP_TICKS + tick);
+            total += bytes;
+            max = Math.max(max, bytes);
+            if (bytes > options.allocationBudget) overBudget++;
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                "Allocation check: %d ticks over %d games | mean %.1f B/tick, max %d B/tick | budget %d B/tick, %d ticks over",
+                MEASURED_TICKS, games + 1, (double) total / MEASURED_TICKS, max,
+                options.allocationBudget, overBudget));
+        if (overBudget > 0) {
+            System.out.println("FAILED");
+            return false;
+        }
+        System.out.println("OK");
+        return true;
+    }
+
+    // The same work as a tick of RunnerGame.runTicks, minus anything that needs a window
+    private long runTick(int tick) {
+        long start = probe.read();
+        long tickStart = System.nanoTime();
+
+        // Synthetic key traffic so the input ring is exercised too
+        if (tick % 30 == 0) input.onKey(GLFW.GLFW_KEY_LEFT, GLFW.GLFW_PRESS);
+        if (tick % 30 == 5) input.onKey(GLFW.GLFW_KEY_LEFT, GLFW.GLFW_RELEASE);
+        input.consumeTick(tickStart);
+
+        world.update(step);
+        if (world.isGameOver()) {
+            games++;
+            world.reset(options.seed + games); // warm restart, as the game does
+        }
+
+        long bytes = probe.since(start);
+        metrics.recordTick(System.nanoTime() - tickStart, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,46 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// Bytes allocated by the thread that created the probe, from HotSpot's per-thread TLAB accounting.
+// Usage: long start = probe.read(); ...; long bytes = probe.since(start)
+class AllocationProbe {
+    private static final int CALIBRATION_ROUNDS = 32;
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long threadId = Thread.currentThread().getId();
+    private final long overhead;
+
+    AllocationProbe() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+
+        // On some JDKs reading the counter allocates a small array; measure that so it isn't
+        // charged to the code being probed
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS && threads != null; i++) {
+            long start = read();
+            least = Math.min(least, read() - start);
+        }
+        overhead = threads != null ? least : 0;
+    }
+
+    boolean isSupported() {
+        return threads != null;
+    }
+
+    long read() {
+        return threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+    }
+
+    // Bytes allocated since start was read, or -1 when the JVM can't tell
+    long since(long start) {
+        if (threads == null) return -1;
+        return Math.max(0, read() - start - overhead);
+    }
+}
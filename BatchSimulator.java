@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class BatchSimulator {
+    private static final int GAMES_PER_TASK = 64;
+
+    private final GameOptions options;
+    private final List<ObstacleArchetype> archetypes; // read-only, shared by every worker
+
+    BatchSimulator(GameOptions options) {
+        this.options = options;
+        this.archetypes = ObstacleArchetype.load(options.archetypeFile);
+    }
+
+    private static class Results {
+        final GameTuning tuning;
+        final float[] survival;
+        final int[] scores;
+        final int[] causes = new int[GameWorld.DeathCause.values().length];
+        int timeouts = 0;
+
+        Results(GameTuning tuning, int games) {
+            this.tuning = tuning;
+            survival = new float[games];
+            scores = new int[games];
+        }
+    }
+
+    void run() {
+        List<GameTuning> combinations = new ArrayList<>();
+        combinations.add(options.tuning.copy());
+        for (GameOptions.Sweep sweep : options.sweeps) {
+            List<GameTuning> expanded = new ArrayList<>();
+            for (GameTuning tuning : combinations) {
+                for (float value : sweep.values) {
+                    GameTuning variant = tuning.copy();
+                    variant.set(sweep.parameter, value);
+                    expanded.add(variant);
+                }
+            }
+            combinations = expanded;
+        }
+
+        int threads = options.simulateThreads > 0 ? options.simulateThreads : Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format(Locale.ROOT,
+                "Simulating %d games x %d parameter sets on %d threads (%.0f Hz steps, %.0f s cap, seed %d, %d obstacle types)",
+                options.simulateGames, combinations.size(), threads,
+                options.tickRate, options.simulateMaxTime, options.seed, archetypes.size()));
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Results> allResults = new ArrayList<>();
+            List<Future<?>> tasks = new ArrayList<>();
+            for (GameTuning tuning : combinations) {
+                Results results = new Results(tuning, options.simulateGames);
+                allResults.add(results);
+                for (int first = 0; first < options.simulateGames; first += GAMES_PER_TASK) {
+                    int from = first;
+                    int to = Math.min(first + GAMES_PER_TASK, options.simulateGames);
+                    tasks.add(pool.submit(() -> simulateRange(results, from, to)));
+                }
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            for (Results results : allResults) {
+                report(results);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Simulation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.println(String.format(Locale.ROOT, "Done in %.2f s", (System.nanoTime() - start) / 1e9));
+    }
+
+    private void simulateRange(Results results, int from, int to) {
+        float step = 1.0f / options.tickRate;
+        int[] causes = new int[results.causes.length];
+        int timeouts = 0;
+
+        for (int game = from; game < to; game++) {
+            // The same seeds are used for every parameter set, so sweeps compare like with like
+            GameWorld world = new GameWorld(results.tuning, archetypes, seedFor(game), true);
+            while (!world.isGameOver() && world.getTime() < options.simulateMaxTime) {
+                world.update(step);
+            }
+
+            results.survival[game] = world.getTime();
+            results.scores[game] = world.getScore();
+            if (world.isGameOver()) {
+                causes[world.getDeathCause().ordinal()]++;
+            } else {
+                timeouts++;
+            }
+        }
+
+        synchronized (results) {
+            for (int i = 0; i < causes.length; i++) {
+                results.causes[i] += causes[i];
+            }
+            results.timeouts += timeouts;
+        }
+    }
+
+    private long seedFor(int game) {
+        return options.seed ^ (game + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    private void report(Results results) {
+        StringBuilder line = new StringBuilder();
+        for (String parameter : GameTuning.PARAMETERS) {
+            line.append(String.format(Locale.ROOT, "%s=%.3f ", parameter, results.tuning.get(parameter)));
+        }
+        System.out.println(line.toString().trim());
+
+        float[] survival = results.survival.clone();
+        Arrays.sort(survival);
+        int[] scores = results.scores.clone();
+        Arrays.sort(scores);
+        int games = survival.length;
+
+        double survivalSum = 0;
+        long scoreSum = 0;
+        for (int i = 0; i < games; i++) {
+            survivalSum += survival[i];
+            scoreSum += scores[i];
+        }
+
+        System.out.println(String.format(Locale.ROOT,
+                "  survival s: mean=%.1f p10=%.1f p50=%.1f p90=%.1f max=%.1f",
+                survivalSum / games, survival[rank(0.10, games)], survival[rank(0.50, games)],
+                survival[rank(0.90, games)], survival[games - 1]));
+        System.out.println(String.format(Locale.ROOT,
+                "  score:      mean=%.1f p10=%d p50=%d p90=%d max=%d",
+                (double) scoreSum / games, scores[rank(0.10, games)], scores[rank(0.50, games)],
+                scores[rank(0.90, games)], scores[games - 1]));
+
+        StringBuilder causes = new StringBuilder("  ended by:  ");
+        for (GameWorld.DeathCause cause : GameWorld.DeathCause.values()) {
+            if (cause == GameWorld.DeathCause.NONE) continue;
+            causes.append(String.format(Locale.ROOT, "%s %.1f%%  ", cause, 100.0 * results.causes[cause.ordinal()] / games));
+        }
+        causes.append(String.format(Locale.ROOT, "TIMEOUT %.1f%%", 100.0 * results.timeouts / games));
+        System.out.println(causes);
+    }
+
+    private static int rank(double p, int count) {
+        return Math.max(0, Math.min(count - 1, (int) Math.ceil(p * count) - 1));
+    }
+}
@@ -0,0 +1,201 @@
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+class Benchmark {
+    private static final int WARMUP_FRAMES = 60;
+    private static final float[] LANES = {-2f, 0f, 2f};
+
+    private final GameOptions options;
+    private final int width;
+    private final int height;
+
+    private Player player;
+    private Terrain terrain;
+    private final List<NPCPlayer> npcs = new ArrayList<>();
+    private final List<Obstacle> obstacles = new ArrayList<>();
+    private List<ObstacleArchetype> archetypes;
+    private final List<List<Obstacle>> obstaclesByType = new ArrayList<>();
+    private float[] obstacleX;
+    private float[] obstacleZ;
+    private float[] obstacleY;
+    private GpuProfiler profiler;
+
+    Benchmark(GameOptions options, int width, int height) {
+        this.options = options;
+        this.width = width;
+        this.height = height;
+    }
+
+    void run() {
+        // Always offscreen: an invisible window (or surfaceless EGL with no display) and an FBO
+        GameWindow.initGlfw(true);
+        try {
+            String[] backends = options.renderer != null
+                    ? new String[] {options.renderer}
+                    : new String[] {"core", "legacy"};
+            for (String backend : backends) {
+                runBackend(backend);
+            }
+        } finally {
+            GLFW.glfwTerminate();
+        }
+    }
+
+    private void runBackend(String backend) {
+        long window;
+        try {
+            window = GameWindow.create(width, height, "Breakline benchmark", backend.equals("core"), false);
+        } catch (RuntimeException e) {
+            System.err.println(backend + ": skipped, " + e.getMessage());
+            return;
+        }
+
+        OffscreenTarget target = null;
+        try {
+            Renderer renderer = backend.equals("core") ? new ShaderRenderer() : new LegacyRenderer();
+            target = new OffscreenTarget(width, height);
+            target.bind();
+            renderer.init(width, height);
+            profiler = options.gpuProfile ? new GpuProfiler() : null;
+
+            setUpScene();
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                renderFrame(renderer, target);
+            }
+            if (profiler != null) profiler.report(); // drop the warmup
+
+            long[] frameTimes = new long[options.benchmarkFrames];
+            long start = System.nanoTime();
+            for (int i = 0; i < frameTimes.length; i++) {
+                long frameStart = System.nanoTime();
+                renderFrame(renderer, target);
+                frameTimes[i] = System.nanoTime() - frameStart;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            report(backend, GL11.glGetString(GL11.GL_RENDERER), frameTimes, elapsed);
+            if (profiler != null) {
+                // The last frame's queries are done too: every frame ends with glFinish
+                profiler.beginFrame();
+                System.out.println(backend + ": " + profiler.report());
+                profiler.delete();
+            }
+            renderer.cleanup();
+        } catch (RuntimeException e) {
+            System.err.println(backend + ": failed, " + e.getMessage());
+        } finally {
+            if (target != null) target.delete();
+            GLFW.glfwDestroyWindow(window);
+        }
+    }
+
+    private void setUpScene() {
+        // Seeded so every backend and every run draws the same scene
+        Random random = new Random(42);
+
+        player = new Player(0, 0, 0);
+        terrain = new Terrain();
+
+        npcs.clear();
+        for (int i = 0; i < options.benchmarkNpcs; i++) {
+            npcs.add(new NPCPlayer(LANES[i % LANES.length], 0, 8.0f - (i / LANES.length) * 1.5f));
+        }
+
+        // Every archetype gets its share, so batching is measured across all of them
+        archetypes = ObstacleArchetype.load(options.archetypeFile);
+        obstaclesByType.clear();
+        for (int i = 0; i < archetypes.size(); i++) {
+            obstaclesByType.add(new ArrayList<>());
+        }
+        obstacles.clear();
+        for (int i = 0; i < options.benchmarkObstacles; i++) {
+            float zPos = player.getZ() + 5f + random.nextFloat() * 45f;
+            ObstacleArchetype type = archetypes.get(i % archetypes.size());
+            Obstacle obstacle = new Obstacle(type, LANES[random.nextInt(LANES.length)], 0, zPos);
+            obstacles.add(obstacle);
+            obstaclesByType.get(type.index).add(obstacle);
+        }
+        obstacleX = new float[obstacles.size()];
+        obstacleZ = new float[obstacles.size()];
+        obstacleY = new float[obstacles.size()];
+    }
+
+    private void renderFrame(Renderer renderer, OffscreenTarget target) {
+        // Obstacles scroll past and wrap around so the scene stays populated
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle obstacle = obstacles.get(i);
+            obstacle.update(0.05f);
+            if (obstacle.getZ() < player.getZ() - 10f) {
+                obstacle.update(-60f);
+            }
+            obstacleX[i] = obstacle.getX();
+            obstacleZ[i] = obstacle.getZ();
+        }
+        terrain.getTerrainHeightsAt(obstacleX, obstacleZ, obstacleY, obstacles.size());
+        for (int i = 0; i < obstacles.size(); i++) {
+            obstacles.get(i).setY(obstacleY[i]);
+        }
+
+        target.bind();
+        renderer.beginFrame();
+        renderer.setCamera(player.getX(), player.getY() + 5.0f, player.getZ() - 10.0f,
+                player.getX(), player.getY(), player.getZ(),
+                0.0f, 1.0f, 0.0f);
+        if (profiler != null) profiler.beginFrame();
+
+        beginPass(GpuProfiler.Pass.TERRAIN);
+        renderer.drawTerrain(terrain);
+        endPass();
+
+        beginPass(GpuProfiler.Pass.RUNNERS);
+        renderer.drawRunner(player, terrain);
+        for (NPCPlayer npc : npcs) {
+            renderer.drawRunner(npc, terrain);
+        }
+        endPass();
+
+        beginPass(GpuProfiler.Pass.OBSTACLES);
+        for (int i = 0; i < archetypes.size(); i++) {
+            renderer.drawObstacles(archetypes.get(i), obstaclesByType.get(i));
+        }
+        endPass();
+
+        beginPass(GpuProfiler.Pass.HUD);
+        renderer.drawText(10, height - 30, "Score: 0");
+        endPass();
+
+        // Wait for the GPU so each sample is a full frame, not just submission
+        GL11.glFinish();
+    }
+
+    private void beginPass(GpuProfiler.Pass pass) {
+        if (profiler != null) profiler.begin(pass);
+    }
+
+    private void endPass() {
+        if (profiler != null) profiler.end();
+    }
+
+    private void report(String backend, String device, long[] frameTimes, long elapsed) {
+        long[] sorted = frameTimes.clone();
+        Arrays.sort(sorted);
+
+        double fps = frameTimes.length / (elapsed / 1e9);
+        System.out.println(String.format(Locale.ROOT,
+                "%s (%s): %d frames, %d obstacles, %d npcs, %.1f fps | frame ms p50=%.3f p95=%.3f p99=%.3f max=%.3f",
+                backend, device, frameTimes.length, options.benchmarkObstacles, options.benchmarkNpcs, fps,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6));
+    }
+
+    static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,739 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+// Two-player co-op over UDP. Both ends run the same seeded world in lockstep: each tick's input is
+// sampled INPUT_DELAY ticks ahead and exchanged, and a tick is only simulated once both players'
+// input for it is known. The local runner is predicted through the inputs still in flight so it
+// answers the keys at once. The host also sends delta-compressed snapshots: now and then to the
+// client, which checks them against its own state and rolls forward from them if it has drifted,
+// and continuously to spectators, who just show them
+class CoopSession {
+    enum Role {
+        HOST,
+        CLIENT,
+        SPECTATOR
+    }
+
+    static final int DEFAULT_PORT = 7777;
+
+    // One byte of buttons per player per tick
+    static final int LEFT = 1;
+    static final int RIGHT = 2;
+    static final int JUMP = 4;
+    static final int SLIDE = 8;
+    static final int RESTART = 16;
+
+    private static final int MAGIC = 0x53524350; // "PCRS" little-endian
+    private static final int VERSION = 1;
+    private static final byte HELLO = 1;
+    private static final byte WELCOME = 2;
+    private static final byte INPUT = 3;
+    private static final byte SNAPSHOT = 4;
+    private static final byte ACK = 5;
+    private static final byte BYE = 6;
+
+    private static final int INPUT_DELAY = 3;           // ticks; 50 ms at 60 Hz hides most LAN and loopback latency
+    private static final int MAX_LEAD = 20;             // ticks local input may run ahead of the simulation
+    private static final int HISTORY = 256;             // ticks of inputs kept, power of two
+    private static final int MASK = HISTORY - 1;
+    private static final int MAX_INPUTS_PER_PACKET = 64;
+    private static final int RESYNC_INTERVAL = 60;      // ticks between snapshots to the client
+    private static final int SPECTATOR_INTERVAL = 2;    // ticks between snapshots to spectators
+    private static final int BASELINES = 8;             // snapshots kept as delta baselines, per receiver
+    private static final int CHECKS = 8;
+    private static final int MAX_STATE = 8192;
+    private static final int MAX_PACKET = 2 * MAX_STATE;
+    private static final long HELLO_INTERVAL_NANOS = 200_000_000L;
+    private static final long JOIN_TIMEOUT_NANOS = 10_000_000_000L;
+    private static final long PEER_TIMEOUT_NANOS = 10_000_000_000L;
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+    private static class Peer {
+        final SocketAddress address;
+        final Role role;
+        long lastHeard;
+        long echo;          // the peer's latest timestamp, returned so it can measure the round trip
+        long echoReceived;
+        double roundTripNanos = -1;
+
+        // Host side: snapshots sent to this peer, usable as a baseline once it acks one
+        int ackedSnapshot = -1;
+        final int[] sentTicks = new int[BASELINES];
+        final byte[][] sent = new byte[BASELINES][];
+        final int[] sentLengths = new int[BASELINES];
+        int nextSent = 0;
+
+        Peer(SocketAddress address, Role role, long now) {
+            this.address = address;
+            this.role = role;
+            this.lastHeard = now;
+            Arrays.fill(sentTicks, -1);
+        }
+    }
+
+    private final Role role;
+    private final DatagramChannel channel;
+    private final int archetypeCount;
+    private final List<Peer> peers = new ArrayList<>();
+    private Peer partner; // the host for the client and spectators, the client for the host
+    private boolean lost = false;
+    private String refusal; // why the host's welcome can't be accepted; join() fails with it
+
+    private long seed;
+    private float tickRate;
+    private GameWorld world;
+    private float step;
+    private int games = 0;
+    private Player predicted;
+
+    // Tick 1 is the first step; ticks up to INPUT_DELAY have no input on either side
+    private final byte[] localInputs = new byte[HISTORY];
+    private final byte[] remoteInputs = new byte[HISTORY];
+    private int sampledTick = INPUT_DELAY;
+    private int receivedTick = INPUT_DELAY;
+    private int partnerAckedTick = INPUT_DELAY;
+    private int simTick = 0;
+    private long waitedTicks = 0;
+
+    // Snapshot state: the current one as bytes, and on the receiving side the last few decoded
+    private final byte[] state = new byte[MAX_STATE];
+    private final ByteBuffer stateBuffer = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+    private int capturedTick = -1;
+    private int capturedLength;
+    private final int[] receivedTicks = new int[BASELINES];
+    private final byte[][] received = new byte[BASELINES][MAX_STATE];
+    private final int[] receivedLengths = new int[BASELINES];
+    private final int[] receivedGames = new int[BASELINES];
+    private int nextReceived = 0;
+    private int latestSnapshot = -1;
+    private int pendingSnapshot = -1; // client: snapshot slot for a tick not simulated yet
+    private final int[] checkTicks = new int[CHECKS];
+    private final int[] checkCrcs = new int[CHECKS];
+    private final CRC32 crc = new CRC32();
+    private long resyncs = 0;
+
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_PACKET).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer out = ByteBuffer.allocate(MAX_PACKET).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Traffic, payload bytes only
+    private long bytesSent, bytesReceived, packetsSent, packetsReceived;
+    private long rateStart, rateBytesSent, rateBytesReceived, ratePacketsSent, ratePacketsReceived;
+    private double sentPerSecond, receivedPerSecond, packetsSentPerSecond, packetsReceivedPerSecond;
+    private long lastReport;
+
+    private CoopSession(Role role, DatagramChannel channel, int archetypeCount) {
+        this.role = role;
+        this.channel = channel;
+        this.archetypeCount = archetypeCount;
+        Arrays.fill(receivedTicks, -1);
+        Arrays.fill(checkTicks, -1);
+        rateStart = lastReport = System.nanoTime();
+    }
+
+    // Waits for a teammate to join; spectators may come and go at any time
+    static CoopSession host(int port, float tickRate, int archetypeCount) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+
+        CoopSession session = new CoopSession(Role.HOST, channel, archetypeCount);
+        session.seed = System.nanoTime();
+        session.tickRate = tickRate;
+        System.out.println("Waiting for a teammate on UDP port " + port + "...");
+        while (session.partner == null) {
+            session.receive();
+            LockSupport.parkNanos(10_000_000L);
+        }
+        System.out.println("Teammate joined from " + session.partner.address);
+        return session;
+    }
+
+    static CoopSession join(String address, int port, Role role, int archetypeCount) throws IOException {
+        if (role == Role.HOST) throw new IllegalArgumentException("Use host() to host a game");
+        InetSocketAddress host = new InetSocketAddress(address, port);
+        if (host.isUnresolved()) throw new IOException("Unknown host: " + address);
+
+        DatagramChannel channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(host);
+
+        CoopSession session = new CoopSession(role, channel, archetypeCount);
+        session.partner = new Peer(host, Role.HOST, System.nanoTime());
+        session.peers.add(session.partner);
+
+        long start = System.nanoTime();
+        long lastHello = 0;
+        while (session.tickRate == 0) {
+            long now = System.nanoTime();
+            if (now - start > JOIN_TIMEOUT_NANOS) {
+                channel.close();
+                throw new IOException("No answer from " + host);
+            }
+            if (now - lastHello > HELLO_INTERVAL_NANOS) {
+                session.begin(HELLO, session.partner, now);
+                session.out.put((byte) role.ordinal()).putInt(VERSION).putInt(archetypeCount);
+                session.send(session.partner);
+                lastHello = now;
+            }
+            session.receive();
+            if (session.refusal != null) {
+                channel.close();
+                throw new IOException("Can't join " + host + ": " + session.refusal);
+            }
+            LockSupport.parkNanos(10_000_000L);
+        }
+        return session;
+    }
+
+    Role getRole() { return role; }
+    long getSeed() { return seed; }
+    float getTickRate() { return tickRate; }
+    boolean isConnected() { return !lost; }
+
+    void start(GameWorld world) {
+        this.world = world;
+        this.step = 1.0f / tickRate;
+        Player local = getLocalPlayer();
+        predicted = new Player(0, 0, 0);
+        predicted.setJumpStrength(local.getJumpStrength());
+        float[] color = local.getColor();
+        predicted.setColor(color[0], color[1], color[2]);
+        predicted.copyState(local);
+    }
+
+    // The host runs as the world's player, the client as its teammate; spectators follow the host
+    Player getLocalPlayer() {
+        return role == Role.CLIENT ? world.getTeammate() : world.getPlayer();
+    }
+
+    Player getDisplayedPlayer() {
+        return role == Role.SPECTATOR ? world.getPlayer() : predicted;
+    }
+
+    Player getOtherPlayer() {
+        return role == Role.CLIENT ? world.getPlayer() : world.getTeammate();
+    }
+
+    static int buttons(InputQueue input) {
+        int buttons = 0;
+        if (input.isActive(InputBindings.Action.LEFT)) buttons |= LEFT;
+        if (input.isActive(InputBindings.Action.RIGHT)) buttons |= RIGHT;
+        if (input.isActive(InputBindings.Action.JUMP)) buttons |= JUMP;
+        if (input.isActive(InputBindings.Action.SLIDE)) buttons |= SLIDE;
+        if (input.wasPressed(InputBindings.Action.RESTART)) buttons |= RESTART;
+        return buttons;
+    }
+
+    static void applyInput(Player runner, int buttons, float step) {
+        if ((buttons & LEFT) != 0) runner.moveLeft(step);
+        if ((buttons & RIGHT) != 0) runner.moveRight(step);
+        if ((buttons & JUMP) != 0) runner.jump();
+        if ((buttons & SLIDE) != 0) runner.slide();
+    }
+
+    // False while the partner is too far behind; the game then waits instead of running ahead
+    boolean canSample() {
+        if (role == Role.SPECTATOR) return false;
+        if (sampledTick - simTick >= MAX_LEAD) {
+            waitedTicks++;
+            return false;
+        }
+        return true;
+    }
+
+    void sample(int buttons) {
+        sampledTick++;
+        localInputs[sampledTick & MASK] = (byte) buttons;
+    }
+
+    // Steps the world through every tick both players' input is known for; returns how many
+    int advance() {
+        if (role == Role.SPECTATOR) return 0;
+        int ran = 0;
+        while (simTick < sampledTick && simTick < receivedTick) {
+            simTick++;
+            simulate(simTick);
+            ran++;
+            if (role == Role.HOST) {
+                sendSnapshots(simTick);
+            } else if (simTick % RESYNC_INTERVAL == 0) {
+                check(simTick);
+            }
+        }
+        predict();
+        return ran;
+    }
+
+    private void simulate(int tick) {
+        int local = localInputs[tick & MASK];
+        int remote = remoteInputs[tick & MASK];
+        int hostButtons = role == Role.HOST ? local : remote;
+        int clientButtons = role == Role.HOST ? remote : local;
+
+        if (world.isGameOver()) {
+            // Either player can restart, and both ends see it on the same tick
+            if (((hostButtons | clientButtons) & RESTART) != 0) {
+                games++;
+                world.reset(seed + games);
+            }
+            return;
+        }
+        applyInput(world.getPlayer(), hostButtons, step);
+        applyInput(world.getTeammate(), clientButtons, step);
+        world.update(step);
+    }
+
+    // Runs a copy of the local runner through the inputs the world hasn't reached yet. The
+    // runner's movement only depends on its own input and the terrain, so this is what the
+    // world will agree with unless the runner hits something on the way
+    private void predict() {
+        Player local = getLocalPlayer();
+        predicted.copyState(local);
+        if (world.isGameOver()) return;
+        for (int tick = simTick + 1; tick <= sampledTick; tick++) {
+            applyInput(predicted, localInputs[tick & MASK], step);
+            predicted.update(step, world.getTerrain());
+        }
+    }
+
+    private void capture(int tick) {
+        if (capturedTick == tick) return;
+        stateBuffer.clear();
+        world.writeState(stateBuffer);
+        capturedLength = stateBuffer.position();
+        capturedTick = tick;
+    }
+
+    private int checksum(byte[] bytes, int length) {
+        crc.reset();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    // Client: remember what the world looked like, and compare with the host's snapshot if it's here already
+    private void check(int tick) {
+        capture(tick);
+        int slot = (tick / RESYNC_INTERVAL) % CHECKS;
+        checkTicks[slot] = tick;
+        checkCrcs[slot] = checksum(state, capturedLength);
+        if (pendingSnapshot >= 0 && receivedTicks[pendingSnapshot] == tick) {
+            int snapshot = pendingSnapshot;
+            pendingSnapshot = -1;
+            verify(snapshot);
+        }
+    }
+
+    private void verify(int slot) {
+        int tick = receivedTicks[slot];
+        int check = (tick / RESYNC_INTERVAL) % CHECKS;
+        if (checkTicks[check] != tick) return;
+        if (checkCrcs[check] != checksum(received[slot], receivedLengths[slot])) {
+            resync(slot);
+        }
+    }
+
+    // The worlds have drifted apart: take the host's state for that tick and re-run the ticks since
+    private void resync(int slot) {
+        int tick = receivedTicks[slot];
+        if (simTick - tick >= HISTORY - 2 * MAX_LEAD) return; // inputs since then are gone; wait for the next one
+        world.readState(ByteBuffer.wrap(received[slot], 0, receivedLengths[slot]).order(ByteOrder.LITTLE_ENDIAN));
+        games = receivedGames[slot];
+        // Spawns, scores and hits in the replayed ticks were already reported the first time round
+        GameEvents events = world.getEvents();
+        world.setEvents(null);
+        for (int t = tick + 1; t <= simTick; t++) {
+            simulate(t);
+        }
+        world.setEvents(events);
+        capturedTick = -1;
+        resyncs++;
+    }
+
+    private void sendSnapshots(int tick) {
+        for (int i = 0; i < peers.size(); i++) {
+            Peer peer = peers.get(i);
+            int interval = peer.role == Role.SPECTATOR ? SPECTATOR_INTERVAL : RESYNC_INTERVAL;
+            if (tick % interval == 0) {
+                capture(tick);
+                sendSnapshot(peer, tick, System.nanoTime());
+            }
+        }
+    }
+
+    private void sendSnapshot(Peer peer, int tick, long now) {
+        int base = -1;
+        for (int i = 0; i < BASELINES; i++) {
+            if (peer.sentTicks[i] == peer.ackedSnapshot && peer.ackedSnapshot >= 0) base = i;
+        }
+
+        begin(SNAPSHOT, peer, now);
+        out.putInt(tick).putInt(base >= 0 ? peer.sentTicks[base] : -1).putInt(games).putShort((short) capturedLength);
+        if (base >= 0) {
+            encodeDelta(state, capturedLength, peer.sent[base], peer.sentLengths[base], out);
+        } else {
+            encodeDelta(state, capturedLength, null, 0, out);
+        }
+        send(peer);
+
+        int slot = peer.nextSent;
+        if (peer.sent[slot] == null) peer.sent[slot] = new byte[MAX_STATE];
+        System.arraycopy(state, 0, peer.sent[slot], 0, capturedLength);
+        peer.sentLengths[slot] = capturedLength;
+        peer.sentTicks[slot] = tick;
+        peer.nextSent = (slot + 1) % BASELINES;
+    }
+
+    // XOR against the baseline (zeros past its end), then run-length coded as
+    // [unchanged count][changed count][changed bytes]..., counts up to 255. Two unchanged bytes
+    // end a changed run; a lone one is cheaper to send as is
+    static void encodeDelta(byte[] current, int length, byte[] base, int baseLength, ByteBuffer out) {
+        int i = 0;
+        while (i < length) {
+            int same = 0;
+            while (i < length && same < 255 && diff(current, base, baseLength, i) == 0) {
+                same++;
+                i++;
+            }
+            int start = i;
+            int changed = 0;
+            while (i < length && changed < 255 && (diff(current, base, baseLength, i) != 0
+                    || (i + 1 < length && diff(current, base, baseLength, i + 1) != 0))) {
+                changed++;
+                i++;
+            }
+            out.put((byte) same).put((byte) changed);
+            for (int k = start; k < start + changed; k++) {
+                out.put(diff(current, base, baseLength, k));
+            }
+        }
+    }
+
+    static void decodeDelta(ByteBuffer in, byte[] base, int baseLength, byte[] target, int length) {
+        int i = 0;
+        while (i < length) {
+            int same = in.get() & 0xFF;
+            int changed = in.get() & 0xFF;
+            if (i + same + changed > length) throw new IllegalArgumentException("Snapshot runs past its length");
+            for (int end = i + same; i < end; i++) {
+                target[i] = i < baseLength ? base[i] : 0;
+            }
+            for (int end = i + changed; i < end; i++) {
+                target[i] = (byte) (in.get() ^ (i < baseLength ? base[i] : 0));
+            }
+        }
+    }
+
+    private static byte diff(byte[] current, byte[] base, int baseLength, int i) {
+        return (byte) (current[i] ^ (i < baseLength ? base[i] : 0));
+    }
+
+    // Reads every datagram waiting; never blocks
+    void receive() {
+        long now = System.nanoTime();
+        try {
+            while (true) {
+                in.clear();
+                SocketAddress from;
+                if (channel.isConnected()) {
+                    if (channel.read(in) <= 0) break;
+                    from = partner.address;
+                } else {
+                    from = channel.receive(in);
+                    if (from == null) break;
+                }
+                in.flip();
+                bytesReceived += in.remaining();
+                packetsReceived++;
+                try {
+                    handle(from, now);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    // Malformed or foreign datagram; ignore it
+                }
+            }
+        } catch (PortUnreachableException e) {
+            // Nobody listening at the other end (yet); the timeout decides when to give up
+        } catch (IOException e) {
+            System.err.println("Co-op receive failed: " + e.getMessage());
+        }
+
+        for (int i = peers.size() - 1; i >= 0; i--) {
+            Peer peer = peers.get(i);
+            if (now - peer.lastHeard > PEER_TIMEOUT_NANOS) {
+                if (peer == partner) {
+                    if (!lost) System.err.println("Lost contact with " + peer.address);
+                    lost = true;
+                } else {
+                    System.out.println("Spectator " + peer.address + " timed out");
+                    peers.remove(i);
+                }
+            }
+        }
+    }
+
+    private void handle(SocketAddress from, long now) {
+        if (in.remaining() < 25 || in.getInt() != MAGIC) return;
+        byte type = in.get();
+        long timestamp = in.getLong();
+        long echo = in.getLong();
+        long hold = in.getInt() * 1000L;
+
+        Peer peer = find(from);
+        if (type == HELLO) {
+            peer = hello(from, peer, now);
+            if (peer == null) return;
+        }
+        if (peer == null) return;
+
+        peer.lastHeard = now;
+        peer.echo = timestamp;
+        peer.echoReceived = now;
+        if (echo != 0) {
+            double sample = now - echo - hold;
+            peer.roundTripNanos = peer.roundTripNanos < 0 ? sample : peer.roundTripNanos + (sample - peer.roundTripNanos) / 8;
+        }
+
+        switch (type) {
+            case WELCOME:
+                if (role != Role.HOST && tickRate == 0 && refusal == null) {
+                    long welcomeSeed = in.getLong();
+                    float welcomeTickRate = in.getFloat();
+                    if (in.getInt() != archetypeCount) {
+                        refusal = "the host has loaded different obstacle archetypes";
+                    } else {
+                        seed = welcomeSeed;
+                        tickRate = welcomeTickRate;
+                    }
+                }
+                break;
+            case INPUT:
+                readInputs(peer);
+                break;
+            case ACK:
+                peer.ackedSnapshot = Math.max(peer.ackedSnapshot, in.getInt());
+                break;
+            case SNAPSHOT:
+                if (role != Role.HOST) readSnapshot();
+                break;
+            case BYE:
+                if (peer == partner) {
+                    System.out.println(role == Role.HOST ? "Teammate left" : "Host ended the game");
+                    lost = true;
+                } else {
+                    peers.remove(peer);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Host: accept a teammate (only one) or a spectator, and tell it how to build the world
+    private Peer hello(SocketAddress from, Peer known, long now) {
+        if (role != Role.HOST) return null;
+        int requested = in.get();
+        if (requested < 0 || requested >= Role.values().length) return null;
+        Role wanted = Role.values()[requested];
+        if (in.getInt() != VERSION) {
+            System.err.println("Refused " + from + ": different game version");
+            return null;
+        }
+        if (in.getInt() != archetypeCount) {
+            System.err.println("Refused " + from + ": it has loaded different obstacle archetypes");
+            return null;
+        }
+        Peer peer = known;
+        if (peer == null) {
+            if (wanted == Role.CLIENT && partner != null) {
+                System.err.println("Refused " + from + ": the game already has two players");
+                return null;
+            }
+            peer = new Peer(from, wanted == Role.CLIENT ? Role.CLIENT : Role.SPECTATOR, now);
+            peers.add(peer);
+            if (peer.role == Role.CLIENT) {
+                partner = peer;
+            } else {
+                System.out.println("Spectator joined from " + from);
+            }
+        }
+        begin(WELCOME, peer, now);
+        out.putLong(seed).putFloat(tickRate).putInt(archetypeCount);
+        send(peer);
+        return peer;
+    }
+
+    private Peer find(SocketAddress address) {
+        for (int i = 0; i < peers.size(); i++) {
+            if (peers.get(i).address.equals(address)) return peers.get(i);
+        }
+        return null;
+    }
+
+    private void readInputs(Peer peer) {
+        if (peer != partner || role == Role.SPECTATOR) return;
+        int acked = in.getInt();
+        int snapshotAck = in.getInt();
+        int first = in.getInt();
+        int count = in.get() & 0xFF;
+
+        partnerAckedTick = Math.max(partnerAckedTick, Math.min(acked, sampledTick));
+        peer.ackedSnapshot = Math.max(peer.ackedSnapshot, snapshotAck);
+        for (int i = 0; i < count; i++) {
+            int tick = first + i;
+            byte buttons = in.get();
+            if (tick == receivedTick + 1) {
+                remoteInputs[tick & MASK] = buttons;
+                receivedTick = tick;
+            }
+        }
+    }
+
+    private void readSnapshot() {
+        int tick = in.getInt();
+        int baseTick = in.getInt();
+        int snapshotGames = in.getInt();
+        int length = in.getShort() & 0xFFFF;
+        if (tick <= latestSnapshot || length > MAX_STATE || world == null) return;
+
+        int base = -1;
+        if (baseTick >= 0) {
+            for (int i = 0; i < BASELINES; i++) {
+                if (receivedTicks[i] == baseTick) base = i;
+            }
+            if (base < 0) return; // baseline already dropped; the host falls back to a full one
+        }
+
+        int slot = nextReceived;
+        while (slot == base || slot == pendingSnapshot) slot = (slot + 1) % BASELINES;
+        receivedTicks[slot] = -1; // overwritten below; no longer a baseline if the rest turns out to be garbage
+        if (base >= 0) {
+            decodeDelta(in, received[base], receivedLengths[base], received[slot], length);
+        } else {
+            decodeDelta(in, null, 0, received[slot], length);
+        }
+        // Checked now, because a client may only apply it ticks later, outside this datagram's handling
+        if (!world.isValidState(ByteBuffer.wrap(received[slot], 0, length).order(ByteOrder.LITTLE_ENDIAN))) return;
+        receivedTicks[slot] = tick;
+        receivedLengths[slot] = length;
+        receivedGames[slot] = snapshotGames;
+        nextReceived = (slot + 1) % BASELINES;
+        latestSnapshot = tick;
+
+        if (role == Role.SPECTATOR) {
+            world.readState(ByteBuffer.wrap(received[slot], 0, length).order(ByteOrder.LITTLE_ENDIAN));
+            games = snapshotGames;
+            simTick = tick;
+        } else if (tick <= simTick) {
+            verify(slot);
+        } else {
+            pendingSnapshot = slot;
+        }
+    }
+
+    // Once per frame: inputs (and acks) to the partner, snapshot acks from spectators
+    void send() {
+        if (partner == null) return;
+        long now = System.nanoTime();
+        if (role == Role.SPECTATOR) {
+            begin(ACK, partner, now);
+            out.putInt(latestSnapshot);
+            send(partner);
+            return;
+        }
+
+        int first = partnerAckedTick + 1;
+        int count = Math.min(sampledTick - partnerAckedTick, MAX_INPUTS_PER_PACKET);
+        begin(INPUT, partner, now);
+        out.putInt(receivedTick).putInt(latestSnapshot).putInt(first).put((byte) count);
+        for (int i = 0; i < count; i++) {
+            out.put(localInputs[(first + i) & MASK]);
+        }
+        send(partner);
+    }
+
+    private void begin(byte type, Peer peer, long now) {
+        out.clear();
+        out.putInt(MAGIC).put(type).putLong(now).putLong(peer.echo)
+                .putInt(peer.echo != 0 ? (int) ((now - peer.echoReceived) / 1000) : 0);
+    }
+
+    private void send(Peer peer) {
+        out.flip();
+        int length = out.remaining();
+        try {
+            if (channel.isConnected()) {
+                channel.write(out);
+            } else {
+                channel.send(out, peer.address);
+            }
+            bytesSent += length;
+            packetsSent++;
+        } catch (PortUnreachableException e) {
+            // Not listening yet
+        } catch (IOException e) {
+            System.err.println("Co-op send failed: " + e.getMessage());
+        }
+    }
+
+    // Bandwidth is payload only, without UDP/IP headers; the round trip is to the partner
+    void updateRates() {
+        long now = System.nanoTime();
+        long elapsed = now - rateStart;
+        if (elapsed >= RATE_INTERVAL_NANOS) {
+            sentPerSecond = (bytesSent - rateBytesSent) * 1e9 / elapsed;
+            receivedPerSecond = (bytesReceived - rateBytesReceived) * 1e9 / elapsed;
+            packetsSentPerSecond = (packetsSent - ratePacketsSent) * 1e9 / elapsed;
+            packetsReceivedPerSecond = (packetsReceived - ratePacketsReceived) * 1e9 / elapsed;
+            rateBytesSent = bytesSent;
+            rateBytesReceived = bytesReceived;
+            ratePacketsSent = packetsSent;
+            ratePacketsReceived = packetsReceived;
+            rateStart = now;
+        }
+        if (now - lastReport >= REPORT_INTERVAL_NANOS) {
+            System.out.println(report());
+            lastReport = now;
+        }
+    }
+
+    double getSentBytesPerSecond() { return sentPerSecond; }
+    double getReceivedBytesPerSecond() { return receivedPerSecond; }
+
+    double getRoundTripMillis() {
+        return partner != null && partner.roundTripNanos >= 0 ? partner.roundTripNanos / 1e6 : -1;
+    }
+
+    String report() {
+        return String.format(Locale.ROOT,
+                "Co-op %s: up %.1f KB/s (%.0f packets/s), down %.1f KB/s (%.0f packets/s), RTT %s | tick %d, waited %d ticks, resyncs %d, spectators %d",
+                role.name().toLowerCase(Locale.ROOT), sentPerSecond / 1024, packetsSentPerSecond,
+                receivedPerSecond / 1024, packetsReceivedPerSecond,
+                getRoundTripMillis() < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f ms", getRoundTripMillis()),
+                simTick, waitedTicks, resyncs, role == Role.HOST ? peers.size() - 1 : 0);
+    }
+
+    void close() {
+        long now = System.nanoTime();
+        for (int i = 0; i < peers.size(); i++) {
+            begin(BYE, peers.get(i), now);
+            send(peers.get(i));
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close co-op socket: " + e.getMessage());
+        }
+    }
+}
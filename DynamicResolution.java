@@ -0,0 +1,182 @@
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.Locale;
+
+// Renders the 3D scene into an output-sized framebuffer through a smaller viewport, then stretches
+// that corner over the output, so changing the scale never reallocates anything. The scale
+// follows the scene's GPU time (timestamp queries, read a few frames late so nothing stalls).
+// It drops quickly when over budget and creeps back only after a long stretch well under it,
+// so it doesn't oscillate
+class DynamicResolution {
+    private static final float MAX_SCALE = 1.0f;
+    private static final float STEP = 0.05f;
+    private static final float HEADROOM = 0.7f;     // scale up only below this share of the budget
+    private static final int DOWN_FRAMES = 10;      // consecutive frames over budget before scaling down
+    private static final int UP_FRAMES = 90;        // consecutive frames under the headroom before scaling up
+    private static final int SETTLE_FRAMES = 30;    // after a change, time for it to show in the measurements
+    private static final int QUERIES = 4;           // frames of timestamp pairs in flight
+
+    private final int width;
+    private final int height;
+    private final float targetNanos;
+    private final float minScale;
+    private final int framebuffer;
+    private final int colorBuffer;
+    private final int depthBuffer;
+
+    private final int[] startQueries = new int[QUERIES];
+    private final int[] endQueries = new int[QUERIES];
+    private final boolean[] pending = new boolean[QUERIES];
+    private long frame = 0;
+
+    private float scale = MAX_SCALE;
+    private int sceneWidth;
+    private int sceneHeight;
+    private float measured = 0; // smoothed, nanoseconds
+    private int overBudget = 0;
+    private int underBudget = 0;
+    private int settle = 0;
+
+    // width and height are the output's size in pixels, which on a HiDPI display isn't the window size
+    DynamicResolution(int width, int height, float targetMillis, float minScale) {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL30) {
+            throw new IllegalStateException("Dynamic resolution needs framebuffer objects (OpenGL 3.0)");
+        }
+        // The frame time is no substitute: it includes the vsync and limiter waits, so it never
+        // looks under budget and the scale would only ever go down
+        if (!caps.OpenGL33 && !caps.GL_ARB_timer_query) {
+            throw new IllegalStateException("Dynamic resolution needs GPU timestamps (OpenGL 3.3 or ARB_timer_query)");
+        }
+        this.width = width;
+        this.height = height;
+        this.targetNanos = targetMillis * 1e6f;
+        this.minScale = minScale; // in (0, 1], checked by GameOptions
+
+        framebuffer = GL30.glGenFramebuffers();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+        colorBuffer = GL30.glGenRenderbuffers();
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, colorBuffer);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, width, height);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, colorBuffer);
+        depthBuffer = GL30.glGenRenderbuffers();
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, depthBuffer);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH24_STENCIL8, width, height);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, depthBuffer);
+
+        int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+            delete();
+            throw new IllegalStateException("Scene framebuffer incomplete: 0x" + Integer.toHexString(status));
+        }
+
+        // Timestamps rather than GL_TIME_ELAPSED, which can't nest with the profiler's pass queries
+        for (int i = 0; i < QUERIES; i++) {
+            startQueries[i] = GL15.glGenQueries();
+            endQueries[i] = GL15.glGenQueries();
+        }
+        applyScale(MAX_SCALE);
+    }
+
+    float getScale() { return scale; }
+
+    // Everything drawn until endScene lands in the scaled-down scene
+    void beginScene() {
+        frame++;
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+        GL11.glViewport(0, 0, sceneWidth, sceneHeight);
+        int slot = (int) (frame % QUERIES);
+        if (pending[slot]) collect(slot);
+        if (!pending[slot]) GL33.glQueryCounter(startQueries[slot], GL33.GL_TIMESTAMP);
+    }
+
+    // Upscales into the output (the window, or the headless target) and leaves it bound at
+    // full size, so the HUD that follows is drawn at native resolution
+    void endScene(OffscreenTarget output) {
+        int slot = (int) (frame % QUERIES);
+        if (!pending[slot]) {
+            GL33.glQueryCounter(endQueries[slot], GL33.GL_TIMESTAMP);
+            pending[slot] = true;
+        }
+
+        int target = output != null ? output.getFramebuffer() : 0;
+        GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, framebuffer);
+        GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, target);
+        GL30.glBlitFramebuffer(0, 0, sceneWidth, sceneHeight, 0, 0, width, height,
+                GL11.GL_COLOR_BUFFER_BIT, sceneWidth == width ? GL11.GL_NEAREST : GL11.GL_LINEAR);
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, target);
+        GL11.glViewport(0, 0, width, height);
+    }
+
+    // Once per frame: picks up whatever timestamps have landed
+    void update() {
+        for (int i = 0; i < QUERIES; i++) {
+            if (pending[i]) collect(i);
+        }
+    }
+
+    private void collect(int slot) {
+        if (GL15.glGetQueryObjecti(endQueries[slot], GL15.GL_QUERY_RESULT_AVAILABLE) == 0) return;
+        long start = GL33.glGetQueryObjectui64(startQueries[slot], GL15.GL_QUERY_RESULT);
+        long end = GL33.glGetQueryObjectui64(endQueries[slot], GL15.GL_QUERY_RESULT);
+        pending[slot] = false;
+        sample(end - start);
+    }
+
+    private void sample(long nanos) {
+        measured = measured == 0 ? nanos : measured + (nanos - measured) / 8;
+        if (settle > 0) {
+            settle--;
+            return;
+        }
+
+        if (measured > targetNanos) {
+            underBudget = 0;
+            if (++overBudget >= DOWN_FRAMES && scale > minScale) {
+                // Cost follows the pixel count, so aim for the budget with a little to spare
+                float wanted = scale * (float) Math.sqrt(targetNanos * 0.9f / measured);
+                applyScale(Math.min(scale - STEP, wanted));
+            }
+        } else if (measured < targetNanos * HEADROOM) {
+            overBudget = 0;
+            if (++underBudget >= UP_FRAMES && scale < MAX_SCALE) {
+                applyScale(scale + STEP);
+            }
+        } else {
+            overBudget = 0;
+            underBudget = 0;
+        }
+    }
+
+    private void applyScale(float wanted) {
+        float previous = scale;
+        scale = Math.max(minScale, Math.min(MAX_SCALE, Math.round(wanted / STEP) * STEP));
+        sceneWidth = Math.max(1, Math.round(width * scale));
+        sceneHeight = Math.max(1, Math.round(height * scale));
+        overBudget = 0;
+        underBudget = 0;
+        settle = SETTLE_FRAMES;
+        if (scale != previous) {
+            System.out.println(String.format(Locale.ROOT, "Render scale %.2f (%dx%d), scene GPU %.2f ms against %.2f ms",
+                    scale, sceneWidth, sceneHeight, measured / 1e6, targetNanos / 1e6));
+        }
+    }
+
+    void delete() {
+        for (int i = 0; i < QUERIES; i++) {
+            if (startQueries[i] != 0) GL15.glDeleteQueries(startQueries[i]);
+            if (endQueries[i] != 0) GL15.glDeleteQueries(endQueries[i]);
+        }
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        GL30.glDeleteRenderbuffers(colorBuffer);
+        GL30.glDeleteRenderbuffers(depthBuffer);
+        GL30.glDeleteFramebuffers(framebuffer);
+    }
+}
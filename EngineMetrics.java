@@ -0,0 +1,309 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Written only by the game thread, read from JMX and the metrics endpoint. Writers never
+// lock or CAS: single-writer counters are published with lazySet and gauges are volatile
+public class EngineMetrics implements EngineMetricsMBean {
+    static final String OBJECT_NAME = "SubwayRunner:type=EngineMetrics";
+
+    // Histogram upper bounds in seconds; anything slower lands in the implicit +Inf bucket
+    private static final double[] BUCKETS = {0.001, 0.002, 0.004, 0.008, 0.0167, 0.0333, 0.05, 0.1, 0.25};
+    private static final long ALLOCATION_SAMPLE_NANOS = 1_000_000_000L;
+
+    private final Histogram frameTimes = new Histogram();
+    private final Histogram tickTimes = new Histogram();
+    private volatile double frameAverageNanos = 0;
+    private volatile double tickAverageNanos = 0;
+
+    private volatile int obstacles = 0;
+    private volatile int npcs = 0;
+    private volatile int audioPlaying = 0;
+    private volatile int audioAllocated = 0;
+
+    // Game-thread allocation as measured by AllocationProbe; stays -1 if the JVM can't tell
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private volatile boolean allocationTracked = false;
+    private volatile double allocationRate = -1;
+    private volatile double bytesPerFrame = -1;
+    private volatile double bytesPerTick = -1;
+    private long lastAllocationSample = 0;
+    private long lastAllocatedBytes = 0;
+
+    // Key events dropped from a full input ring, and the delay from key callback to the tick that applied it
+    private volatile long inputDropped = 0;
+    private volatile long inputLatencyAverage = 0;
+    private volatile long inputLatencyMax = 0;
+
+    // Telemetry records lost to a full ring; -1 when not logging
+    private volatile long telemetryDropped = -1;
+
+    // Co-op traffic in payload bytes per second and round trip to the other player; -1 when not networked,
+    // and the round trip stays -1 until the first reply has been timed
+    private volatile double networkSent = -1;
+    private volatile double networkReceived = -1;
+    private volatile double networkRoundTrip = -1;
+
+    private ObjectName registeredName;
+
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            registeredName = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(registeredName)) server.unregisterMBean(registeredName);
+            server.registerMBean(this, registeredName);
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics MBean: " + e.getMessage());
+            registeredName = null;
+        }
+    }
+
+    void unregister() {
+        if (registeredName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            System.err.println("Failed to unregister metrics MBean: " + e.getMessage());
+        }
+        registeredName = null;
+    }
+
+    // allocated is the bytes the frame allocated, or negative when unknown
+    void recordFrame(long nanos, long allocated) {
+        frameTimes.record(nanos);
+        frameAverageNanos = frameAverageNanos == 0 ? nanos : frameAverageNanos + (nanos - frameAverageNanos) / 16;
+        if (allocated >= 0) {
+            bytesPerFrame = bytesPerFrame < 0 ? allocated : bytesPerFrame + (allocated - bytesPerFrame) / 16;
+            allocatedBytes.lazySet(allocatedBytes.get() + allocated);
+            allocationTracked = true;
+            sampleAllocationRate();
+        }
+    }
+
+    void recordTick(long nanos, long allocated) {
+        tickTimes.record(nanos);
+        tickAverageNanos = tickAverageNanos == 0 ? nanos : tickAverageNanos + (nanos - tickAverageNanos) / 16;
+        if (allocated >= 0) {
+            bytesPerTick = bytesPerTick < 0 ? allocated : bytesPerTick + (allocated - bytesPerTick) / 16;
+        }
+    }
+
+    void setCounts(int obstacles, int npcs) {
+        this.obstacles = obstacles;
+        this.npcs = npcs;
+    }
+
+    void setAudioSources(int playing, int allocated) {
+        this.audioPlaying = playing;
+        this.audioAllocated = allocated;
+    }
+
+    void setInput(long dropped, long averageLatencyNanos, long maxLatencyNanos) {
+        this.inputDropped = dropped;
+        this.inputLatencyAverage = averageLatencyNanos;
+        this.inputLatencyMax = maxLatencyNanos;
+    }
+
+    void setTelemetryDropped(long dropped) {
+        this.telemetryDropped = dropped;
+    }
+
+    void setNetwork(double sentBytesPerSecond, double receivedBytesPerSecond, double roundTripMillis) {
+        this.networkSent = sentBytesPerSecond;
+        this.networkReceived = receivedBytesPerSecond;
+        this.networkRoundTrip = roundTripMillis;
+    }
+
+    private void sampleAllocationRate() {
+        long now = System.nanoTime();
+        if (now - lastAllocationSample < ALLOCATION_SAMPLE_NANOS) return;
+
+        long bytes = allocatedBytes.get();
+        if (lastAllocationSample != 0) {
+            allocationRate = (bytes - lastAllocatedBytes) * 1e9 / (now - lastAllocationSample);
+        }
+        lastAllocatedBytes = bytes;
+        lastAllocationSample = now;
+    }
+
+    public long getFrameCount() { return frameTimes.getCount(); }
+    public long getTickCount() { return tickTimes.getCount(); }
+
+    public double getFramesPerSecond() {
+        double average = frameAverageNanos;
+        return average > 0 ? 1e9 / average : 0;
+    }
+
+    public double getAverageFrameMillis() { return frameAverageNanos / 1e6; }
+    public double getAverageTickMillis() { return tickAverageNanos / 1e6; }
+
+    public double[] getHistogramBucketsMillis() {
+        double[] millis = new double[BUCKETS.length];
+        for (int i = 0; i < BUCKETS.length; i++) millis[i] = BUCKETS[i] * 1000;
+        return millis;
+    }
+
+    public long[] getFrameTimeHistogram() { return frameTimes.snapshot(); }
+    public long[] getTickTimeHistogram() { return tickTimes.snapshot(); }
+
+    public int getObstacleCount() { return obstacles; }
+    public int getNpcCount() { return npcs; }
+    public int getAudioSourcesPlaying() { return audioPlaying; }
+    public int getAudioSourcesAllocated() { return audioAllocated; }
+
+    public long getInputEventsDropped() { return inputDropped; }
+    public double getAverageInputLatencyMillis() { return inputLatencyAverage / 1e6; }
+    public double getMaxInputLatencyMillis() { return inputLatencyMax / 1e6; }
+
+    public long getTelemetryRecordsDropped() { return telemetryDropped; }
+
+    public double getAllocationRateBytesPerSecond() { return allocationRate; }
+    public double getAllocatedBytesPerFrame() { return bytesPerFrame; }
+    public double getAllocatedBytesPerTick() { return bytesPerTick; }
+
+    public double getNetworkSentBytesPerSecond() { return networkSent; }
+    public double getNetworkReceivedBytesPerSecond() { return networkReceived; }
+    public double getNetworkRoundTripMillis() { return networkRoundTrip; }
+
+    public long getGcCollectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    public long getGcCollectionTimeMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    public long getDirectBufferBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+
+    // Prometheus text exposition format, version 0.0.4
+    void writePrometheus(StringBuilder out) {
+        writeHistogram(out, "runner_frame_seconds", "Time between frames", frameTimes);
+        writeHistogram(out, "runner_tick_seconds", "Time spent in one simulation step", tickTimes);
+
+        writeMetric(out, "runner_obstacles", "gauge", "Live obstacles", obstacles);
+        writeMetric(out, "runner_npcs", "gauge", "Live NPC runners", npcs);
+        writeMetric(out, "runner_audio_sources_playing", "gauge", "OpenAL sources currently playing", audioPlaying);
+        writeMetric(out, "runner_audio_sources", "gauge", "OpenAL sources allocated", audioAllocated);
+        writeMetric(out, "runner_frames_per_second", "gauge", "Smoothed frame rate", getFramesPerSecond());
+
+        writeMetric(out, "runner_input_events_dropped_total", "counter",
+                "Key events lost to a full input ring", inputDropped);
+        writeMetric(out, "runner_input_latency_seconds", "gauge",
+                "Average delay from key event to the simulation step that applied it", inputLatencyAverage / 1e9);
+        writeMetric(out, "runner_input_latency_max_seconds", "gauge",
+                "Longest delay from key event to the simulation step that applied it", inputLatencyMax / 1e9);
+
+        if (telemetryDropped >= 0) {
+            writeMetric(out, "runner_telemetry_dropped_total", "counter",
+                    "Telemetry records lost because the drain thread fell a whole ring behind", telemetryDropped);
+        }
+
+        if (allocationTracked) {
+            writeMetric(out, "runner_game_thread_allocated_bytes_total", "counter",
+                    "Bytes allocated by the game thread", allocatedBytes.get());
+            writeMetric(out, "runner_allocated_bytes_per_frame", "gauge",
+                    "Smoothed bytes allocated per frame", bytesPerFrame);
+            writeMetric(out, "runner_allocated_bytes_per_tick", "gauge",
+                    "Smoothed bytes allocated per simulation step", bytesPerTick);
+        }
+
+        if (networkSent >= 0) {
+            writeMetric(out, "runner_network_sent_bytes_per_second", "gauge", "Co-op payload bytes sent per second", networkSent);
+            writeMetric(out, "runner_network_received_bytes_per_second", "gauge",
+                    "Co-op payload bytes received per second", networkReceived);
+            if (networkRoundTrip >= 0) {
+                writeMetric(out, "runner_network_round_trip_seconds", "gauge", "Smoothed round trip to the other player",
+                        networkRoundTrip / 1000);
+            }
+        }
+
+        out.append("# HELP jvm_gc_collections_total Garbage collections\n");
+        out.append("# TYPE jvm_gc_collections_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collections_total{gc=\"").append(gc.getName()).append("\"} ")
+                    .append(Math.max(0, gc.getCollectionCount())).append('\n');
+        }
+        out.append("# HELP jvm_gc_collection_seconds_total Time spent in garbage collection\n");
+        out.append("# TYPE jvm_gc_collection_seconds_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collection_seconds_total{gc=\"").append(gc.getName()).append("\"} ")
+                    .append(format(Math.max(0, gc.getCollectionTime()) / 1000.0)).append('\n');
+        }
+
+        out.append("# HELP jvm_buffer_pool_used_bytes Memory used by NIO buffer pools\n");
+        out.append("# TYPE jvm_buffer_pool_used_bytes gauge\n");
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            out.append("jvm_buffer_pool_used_bytes{pool=\"").append(pool.getName()).append("\"} ")
+                    .append(pool.getMemoryUsed()).append('\n');
+        }
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String help, Histogram histogram) {
+        long[] counts = histogram.snapshot();
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{le=\"")
+                    .append(i < BUCKETS.length ? format(BUCKETS[i]) : "+Inf").append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum ").append(format(histogram.getSumNanos() / 1e9)).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    private static void writeMetric(StringBuilder out, String name, String type, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    // Bucket counts can be a step apart from each other in a snapshot; that's fine for monitoring
+    static class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+        private final AtomicLong sumNanos = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+
+        void record(long nanos) {
+            double seconds = nanos / 1e9;
+            int bucket = 0;
+            while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) bucket++;
+            counts.lazySet(bucket, counts.get(bucket) + 1);
+            sumNanos.lazySet(sumNanos.get() + nanos);
+            count.lazySet(count.get() + 1);
+        }
+
+        long[] snapshot() {
+            long[] copy = new long[counts.length()];
+            for (int i = 0; i < copy.length; i++) copy[i] = counts.get(i);
+            return copy;
+        }
+
+        long getSumNanos() { return sumNanos.get(); }
+        long getCount() { return count.get(); }
+    }
+}
@@ -0,0 +1,32 @@
+// JMX view of EngineMetrics; times are in milliseconds
+public interface EngineMetricsMBean {
+    long getFrameCount();
+    long getTickCount();
+    double getFramesPerSecond();
+    double getAverageFrameMillis();
+    double getAverageTickMillis();
+    double[] getHistogramBucketsMillis();
+    long[] getFrameTimeHistogram();
+    long[] getTickTimeHistogram();
+
+    int getObstacleCount();
+    int getNpcCount();
+    int getAudioSourcesPlaying();
+    int getAudioSourcesAllocated();
+
+    long getInputEventsDropped();
+    double getAverageInputLatencyMillis();
+    double getMaxInputLatencyMillis();
+    long getTelemetryRecordsDropped();
+
+    double getAllocationRateBytesPerSecond();
+    double getAllocatedBytesPerFrame();
+    double getAllocatedBytesPerTick();
+    double getNetworkSentBytesPerSecond();
+    double getNetworkReceivedBytesPerSecond();
+    double getNetworkRoundTripMillis();
+
+    long getGcCollectionCount();
+    long getGcCollectionTimeMillis();
+    long getDirectBufferBytes();
+}
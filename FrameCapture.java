@@ -0,0 +1,288 @@
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GLCapabilities;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+class FrameCapture {
+    enum Policy {
+        DROP,      // frames are dropped whenever the encoders fall behind
+        THROTTLE   // encoders falling behind halves the capture rate until they catch up
+    }
+
+    private static final int RING_SIZE = 3;
+    private static final int MAX_INTERVAL = 16;
+
+    private static class Frame {
+        final ByteBuffer pixels;
+        long number;
+
+        Frame(int size) {
+            pixels = BufferUtils.createByteBuffer(size);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int frameSize;
+    private final Policy policy;
+    private final boolean useFences;
+
+    private final int[] pixelBuffers = new int[RING_SIZE];
+    private final long[] fences = new long[RING_SIZE];
+    private final long[] pendingFrame = new long[RING_SIZE];
+    private int slot = 0;
+
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> encodeQueue;
+    private final int poolSize;
+    private final Thread[] workers;
+    private final Frame stop = new Frame(0);
+
+    private final File directory;
+    private final Process encoder;
+    private final WritableByteChannel encoderInput;
+
+    private long frameNumber = 0;
+    private int interval = 1;
+    private long captured = 0;
+    private long dropped = 0;
+    private final AtomicLong encoded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Writes a PNG per frame into directory, encoded on several threads
+    static FrameCapture toPngSequence(int width, int height, File directory, int queueSize, Policy policy) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Cannot create capture directory " + directory);
+        }
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new FrameCapture(width, height, queueSize, policy, threads, directory, null);
+    }
+
+    // Pipes raw bottom-up RGBA frames into an encoder's stdin, e.g.
+    // "ffmpeg -f rawvideo -pix_fmt rgba -s 800x600 -r 60 -i - -vf vflip out.mp4"
+    static FrameCapture toPipe(int width, int height, String command, int queueSize, Policy policy) {
+        Process process;
+        try {
+            process = new ProcessBuilder(command.trim().split("\\s+"))
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start capture encoder: " + e.getMessage(), e);
+        }
+        // Frames have to reach the pipe in order, so a single writer
+        return new FrameCapture(width, height, queueSize, policy, 1, null, process);
+    }
+
+    private FrameCapture(int width, int height, int queueSize, Policy policy, int threads,
+                         File directory, Process encoder) {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL21) {
+            throw new IllegalStateException("Frame capture needs pixel buffer objects (OpenGL 2.1)");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.frameSize = width * height * 4;
+        this.policy = policy;
+        this.useFences = caps.OpenGL32 || caps.GL_ARB_sync;
+        this.directory = directory;
+        this.encoder = encoder;
+        this.encoderInput = encoder != null ? Channels.newChannel(encoder.getOutputStream()) : null;
+
+        for (int i = 0; i < RING_SIZE; i++) {
+            pixelBuffers[i] = GL15.glGenBuffers();
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[i]);
+            GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, frameSize, GL15.GL_STREAM_READ);
+            pendingFrame[i] = -1;
+        }
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        // One buffer per queue entry plus one per worker, so a full pool means the queue is full
+        poolSize = queueSize + threads;
+        freeFrames = new ArrayBlockingQueue<>(poolSize);
+        encodeQueue = new ArrayBlockingQueue<>(poolSize + threads);
+        for (int i = 0; i < poolSize; i++) {
+            freeFrames.add(new Frame(frameSize));
+        }
+
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::encodeLoop, "frame-capture-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // Call once per frame with the finished frame still in the read framebuffer
+    void captureFrame() {
+        long number = frameNumber++;
+
+        if (policy == Policy.THROTTLE && interval > 1 && freeFrames.size() == poolSize) {
+            interval /= 2; // encoders are idle again
+        }
+        if (number % interval != 0) {
+            return;
+        }
+
+        // The slot we are about to reuse holds the readback from RING_SIZE captures ago
+        if (pendingFrame[slot] >= 0) {
+            if (!isReady(slot)) {
+                dropped++; // GPU is that far behind; skipping beats stalling on the map
+                return;
+            }
+            collect(slot);
+        }
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[slot]);
+        GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+        if (useFences) {
+            fences[slot] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+        pendingFrame[slot] = number;
+        slot = (slot + 1) % RING_SIZE;
+    }
+
+    private boolean isReady(int index) {
+        if (!useFences) return true;
+        int status = GL32.glClientWaitSync(fences[index], 0, 0);
+        return status == GL32.GL_ALREADY_SIGNALED || status == GL32.GL_CONDITION_SATISFIED;
+    }
+
+    private void collect(int index) {
+        long number = pendingFrame[index];
+        pendingFrame[index] = -1;
+        if (useFences) {
+            GL32.glDeleteSync(fences[index]);
+            fences[index] = 0;
+        }
+
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            dropped++;
+            if (policy == Policy.THROTTLE) {
+                interval = Math.min(interval * 2, MAX_INTERVAL);
+            }
+            return;
+        }
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pixelBuffers[index]);
+        ByteBuffer mapped = GL15.glMapBuffer(GL21.GL_PIXEL_PACK_BUFFER, GL15.GL_READ_ONLY, frameSize, null);
+        if (mapped != null) {
+            frame.pixels.clear();
+            frame.pixels.put(mapped).flip();
+        }
+        GL15.glUnmapBuffer(GL21.GL_PIXEL_PACK_BUFFER);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        if (mapped == null) {
+            freeFrames.add(frame);
+            dropped++;
+            return;
+        }
+
+        frame.number = number;
+        encodeQueue.add(frame);
+        captured++;
+    }
+
+    private void encodeLoop() {
+        BufferedImage image = directory != null ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : null;
+        try {
+            while (true) {
+                Frame frame = encodeQueue.take();
+                if (frame == stop) {
+                    return;
+                }
+                try {
+                    if (image != null) {
+                        writePng(frame, image);
+                    } else {
+                        frame.pixels.rewind();
+                        while (frame.pixels.hasRemaining()) {
+                            encoderInput.write(frame.pixels);
+                        }
+                    }
+                    encoded.incrementAndGet();
+                } catch (IOException e) {
+                    if (failed.getAndIncrement() == 0) {
+                        System.err.println("Frame capture failed: " + e.getMessage());
+                    }
+                } finally {
+                    freeFrames.add(frame);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePng(Frame frame, BufferedImage image) throws IOException {
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        ByteBuffer pixels = frame.pixels;
+
+        // GL rows start at the bottom
+        for (int y = 0; y < height; y++) {
+            int src = (height - 1 - y) * width * 4;
+            int dst = y * width;
+            for (int x = 0; x < width; x++, src += 4) {
+                rgb[dst + x] = (pixels.get(src) & 0xFF) << 16
+                        | (pixels.get(src + 1) & 0xFF) << 8
+                        | (pixels.get(src + 2) & 0xFF);
+            }
+        }
+        ImageIO.write(image, "png", new File(directory, String.format("frame_%06d.png", frame.number)));
+    }
+
+    void close() {
+        // Shutdown is the one place where waiting on the GPU is fine
+        for (int i = 0; i < RING_SIZE; i++) {
+            int index = (slot + i) % RING_SIZE;
+            if (pendingFrame[index] >= 0) {
+                if (useFences) {
+                    GL32.glClientWaitSync(fences[index], GL32.GL_SYNC_FLUSH_COMMANDS_BIT, Long.MAX_VALUE);
+                }
+                collect(index);
+            }
+        }
+        GL15.glDeleteBuffers(pixelBuffers);
+
+        try {
+            for (int i = 0; i < workers.length; i++) {
+                encodeQueue.put(stop);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (encoder != null) {
+                OutputStream input = encoder.getOutputStream();
+                input.close();
+                encoder.waitFor();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Failed to close capture encoder: " + e.getMessage());
+        }
+
+        System.out.println("Captured " + captured + " frames (" + encoded.get() + " encoded, "
+                + dropped + " dropped, " + failed.get() + " failed)");
+    }
+}
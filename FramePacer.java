@@ -0,0 +1,146 @@
+import org.lwjgl.glfw.GLFW;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+class FramePacer {
+    enum VSync {
+        OFF,
+        ON,
+        ADAPTIVE   // vsync unless a frame is late, then tear instead of waiting a whole refresh
+    }
+
+    private static final int HISTORY = 1024;
+    private static final long MIN_SPIN_NANOS = 200_000L;
+    private static final long MAX_SPIN_NANOS = 4_000_000L;
+
+    private final long framePeriod;      // 0 means uncapped
+    private final long reportInterval;   // 0 means no periodic report
+    private VSync vsync;
+
+    private long nextDeadline = 0;
+    private long lastFrameStart = 0;
+
+    // Sleep overshoot is tracked so we wake early enough to spin to the deadline
+    private long oversleepAverage = 1_000_000L;
+    private long spinThreshold = 2_000_000L;
+
+    private final long[] frameTimes = new long[HISTORY];
+    private final long[] sorted = new long[HISTORY];
+    private int frameCount = 0;
+    private long lastReport = 0;
+    private long spinNanos = 0;
+    private long sleepNanos = 0;
+
+    FramePacer(int targetFps, VSync vsync, float reportSeconds) {
+        this.framePeriod = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+        this.vsync = vsync;
+        this.reportInterval = (long) (reportSeconds * 1e9);
+    }
+
+    // Needs a current context
+    void applySwapInterval(boolean headless) {
+        if (headless) {
+            // Nothing is presented, so there's nothing to sync to; the limiter does all the pacing
+            GLFW.glfwSwapInterval(0);
+            return;
+        }
+        if (vsync == VSync.ADAPTIVE && !GLFW.glfwExtensionSupported("WGL_EXT_swap_control_tear")
+                && !GLFW.glfwExtensionSupported("GLX_EXT_swap_control_tear")) {
+            System.err.println("Adaptive vsync not supported by this driver, using vsync on");
+            vsync = VSync.ON;
+        }
+        GLFW.glfwSwapInterval(vsync == VSync.OFF ? 0 : vsync == VSync.ON ? 1 : -1);
+    }
+
+    // Blocks until the next frame is due and returns the time since the previous one, in seconds
+    float waitForNextFrame() {
+        long now = System.nanoTime();
+        if (lastFrameStart == 0) {
+            lastFrameStart = now;
+            lastReport = now;
+            nextDeadline = now + framePeriod;
+            return 0;
+        }
+
+        if (framePeriod > 0) {
+            now = waitUntil(nextDeadline);
+            nextDeadline += framePeriod;
+            if (now - nextDeadline > framePeriod) {
+                nextDeadline = now + framePeriod; // fell well behind; don't try to catch up with a burst
+            }
+        }
+
+        long frameTime = now - lastFrameStart;
+        lastFrameStart = now;
+        frameTimes[frameCount % HISTORY] = frameTime;
+        frameCount++;
+
+        if (reportInterval > 0 && now - lastReport >= reportInterval) {
+            System.out.println(report());
+            lastReport = now;
+        }
+        return frameTime / 1e9f;
+    }
+
+    private long waitUntil(long deadline) {
+        long now = System.nanoTime();
+
+        // Coarse sleep for most of the wait
+        long sleepFor = deadline - now - spinThreshold;
+        if (sleepFor > 0) {
+            LockSupport.parkNanos(sleepFor);
+            long woke = System.nanoTime();
+            long oversleep = Math.max(0, woke - (now + sleepFor));
+            oversleepAverage += (oversleep - oversleepAverage) / 8;
+            spinThreshold = Math.max(MIN_SPIN_NANOS, Math.min(MAX_SPIN_NANOS, oversleepAverage * 2 + MIN_SPIN_NANOS));
+            sleepNanos += woke - now;
+            now = woke;
+        }
+
+        // Spin out the remainder for an accurate deadline
+        long spinStart = now;
+        while (now < deadline) {
+            Thread.yield();
+            now = System.nanoTime();
+        }
+        spinNanos += now - spinStart;
+        return now;
+    }
+
+    // After an idle stretch the next frame starts a fresh schedule instead of reporting the gap
+    void resync() {
+        lastFrameStart = 0;
+    }
+
+    String report() {
+        int count = Math.min(frameCount, HISTORY);
+        if (count == 0) return "frames: none yet";
+
+        System.arraycopy(frameTimes, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+
+        double mean = 0;
+        for (int i = 0; i < count; i++) mean += sorted[i];
+        mean /= count;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            double d = sorted[i] - mean;
+            variance += d * d;
+        }
+        variance /= count;
+
+        double waited = sleepNanos + spinNanos;
+        String result = String.format(Locale.ROOT,
+                "frames: %.1f fps | ms mean=%.2f sd=%.3f p50=%.2f p99=%.2f max=%.2f | vsync=%s cap=%s | spin %.0f%% of wait",
+                1e9 / mean, mean / 1e6, Math.sqrt(variance) / 1e6,
+                sorted[(count - 1) / 2] / 1e6, sorted[Math.max(0, (int) Math.ceil(count * 0.99) - 1)] / 1e6,
+                sorted[count - 1] / 1e6, vsync.toString().toLowerCase(Locale.ROOT),
+                framePeriod > 0 ? String.valueOf(Math.round(1e9 / framePeriod)) : "none",
+                waited > 0 ? 100.0 * spinNanos / waited : 0.0);
+        sleepNanos = 0;
+        spinNanos = 0;
+        return result;
+    }
+}
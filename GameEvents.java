@@ -0,0 +1,7 @@
+interface GameEvents {
+    void obstacleSpawned(Obstacle obstacle, Player player);
+
+    void obstacleCleared(Obstacle obstacle, int score);
+
+    void playerHit(Obstacle obstacle);
+}
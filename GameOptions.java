@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+class GameOptions {
+    // Rendering backend: "core" (GL 3.3 shaders) or "legacy" (fixed function); null picks core
+    String renderer;
+
+    // Render into an offscreen framebuffer behind an invisible window (or a surfaceless EGL context)
+    boolean headless = false;
+
+    boolean benchmark = false;
+    int benchmarkFrames = 600;
+    int benchmarkObstacles = 20;
+    int benchmarkNpcs = 1;
+
+    // Obstacle archetype data file; null means obstacles.txt if present, else the built-in box
+    String archetypeFile;
+
+    // Simulation steps per second, for the game and the batch simulator
+    float tickRate = 60f;
+    InputBindings bindings = new InputBindings();
+
+    // Frame pacing: 0 fps means no cap beyond vsync
+    int targetFps = 0;
+    FramePacer.VSync vsync = FramePacer.VSync.ON;
+    float frameStatsSeconds = 0;
+
+    // Scale the 3D scene to hold this frame time (0 = off; NaN = the --fps target, or 60 fps)
+    float dynamicResolutionMillis = 0;
+    float minRenderScale = 0.5f;
+
+    // Per-pass GPU and CPU render times, printed every few seconds (and after each benchmark backend)
+    boolean gpuProfile = false;
+
+    // Binary event log, read back with TelemetryReader
+    String telemetryFile;
+
+    // Network co-op: host a game, join one as the teammate, or watch one
+    CoopSession.Role coopRole;
+    String coopAddress;
+    int coopPort = CoopSession.DEFAULT_PORT;
+
+    // Finished runs are appended here for the leaderboard; null keeps no history
+    String historyFile = "runs.dat";
+    boolean printLeaderboard = false;
+
+    // Headless check that steady-state ticks allocate no more than the budget, in bytes
+    boolean allocationCheck = false;
+    long allocationBudget = 0;
+
+    // Prometheus endpoint on 127.0.0.1; 0 leaves it off (the JMX MBean is always registered)
+    int metricsPort = 0;
+
+    // Frame capture: a PNG sequence directory or an encoder command fed raw RGBA on stdin
+    String captureDirectory;
+    String capturePipe;
+    int captureQueue = 8;
+    FrameCapture.Policy capturePolicy = FrameCapture.Policy.DROP;
+
+    // Batch simulation: autopilot games run headless with fixed steps
+    int simulateGames = 0;
+    int simulateThreads = 0;
+    float simulateMaxTime = 300f;
+    long seed = 1;
+    GameTuning tuning = new GameTuning();
+    List<Sweep> sweeps = new ArrayList<>();
+
+    static class Sweep {
+        final String parameter;
+        final float[] values;
+
+        Sweep(String parameter, float[] values) {
+            this.parameter = parameter;
+            this.values = values;
+        }
+    }
+
+    static GameOptions parse(String[] args) {
+        GameOptions options = new GameOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--renderer=")) {
+                options.renderer = value(arg);
+            } else if (arg.equals("--headless")) {
+                options.headless = true;
+            } else if (arg.equals("--benchmark")) {
+                options.benchmark = true;
+            } else if (arg.startsWith("--frames=")) {
+                options.benchmarkFrames = positiveInt(arg);
+            } else if (arg.startsWith("--obstacles=")) {
+                options.benchmarkObstacles = nonNegativeInt(arg);
+            } else if (arg.startsWith("--npcs=")) {
+                options.benchmarkNpcs = nonNegativeInt(arg);
+            } else if (arg.startsWith("--archetypes=")) {
+                options.archetypeFile = value(arg);
+            } else if (arg.startsWith("--bind=")) {
+                options.bindings.parse(value(arg));
+            } else if (arg.startsWith("--fps=")) {
+                options.targetFps = nonNegativeInt(arg);
+            } else if (arg.startsWith("--vsync=")) {
+                options.vsync = FramePacer.VSync.valueOf(value(arg).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--frame-stats=")) {
+                options.frameStatsSeconds = positiveFloat(arg);
+            } else if (arg.equals("--dynamic-resolution")) {
+                options.dynamicResolutionMillis = Float.NaN;
+            } else if (arg.startsWith("--dynamic-resolution=")) {
+                options.dynamicResolutionMillis = positiveFloat(arg);
+            } else if (arg.startsWith("--min-render-scale=")) {
+                options.minRenderScale = positiveFloat(arg);
+                if (options.minRenderScale > 1) {
+                    throw new IllegalArgumentException("Expected a scale above 0 and at most 1: " + arg);
+                }
+            } else if (arg.equals("--gpu-profile")) {
+                options.gpuProfile = true;
+            } else if (arg.startsWith("--telemetry=")) {
+                options.telemetryFile = value(arg);
+            } else if (arg.equals("--host")) {
+                options.coopRole = CoopSession.Role.HOST;
+            } else if (arg.startsWith("--host=")) {
+                options.coopRole = CoopSession.Role.HOST;
+                options.coopPort = positiveInt(arg);
+            } else if (arg.startsWith("--join=")) {
+                options.coopRole = CoopSession.Role.CLIENT;
+                parseAddress(options, value(arg));
+            } else if (arg.startsWith("--spectate=")) {
+                options.coopRole = CoopSession.Role.SPECTATOR;
+                parseAddress(options, value(arg));
+            } else if (arg.startsWith("--history=")) {
+                options.historyFile = value(arg);
+            } else if (arg.equals("--no-history")) {
+                options.historyFile = null;
+            } else if (arg.equals("--leaderboard")) {
+                options.printLeaderboard = true;
+            } else if (arg.equals("--alloc-check")) {
+                options.allocationCheck = true;
+            } else if (arg.startsWith("--alloc-budget=")) {
+                options.allocationBudget = nonNegativeInt(arg);
+            } else if (arg.startsWith("--metrics-port=")) {
+                options.metricsPort = positiveInt(arg);
+            } else if (arg.startsWith("--capture-dir=")) {
+                options.captureDirectory = value(arg);
+            } else if (arg.startsWith("--capture-pipe=")) {
+                options.capturePipe = value(arg);
+            } else if (arg.startsWith("--capture-queue=")) {
+                options.captureQueue = positiveInt(arg);
+            } else if (arg.startsWith("--capture-policy=")) {
+                options.capturePolicy = FrameCapture.Policy.valueOf(value(arg).toUpperCase(Locale.ROOT));
+            } else if (arg.startsWith("--simulate=")) {
+                options.simulateGames = positiveInt(arg);
+            } else if (arg.startsWith("--threads=")) {
+                options.simulateThreads = positiveInt(arg);
+            } else if (arg.startsWith("--tick-rate=")) {
+                options.tickRate = positiveFloat(arg);
+            } else if (arg.startsWith("--max-time=")) {
+                options.simulateMaxTime = positiveFloat(arg);
+            } else if (arg.startsWith("--seed=")) {
+                options.seed = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--tune=")) {
+                String[] assignment = value(arg).split("=", 2);
+                if (assignment.length != 2) {
+                    throw new IllegalArgumentException("--tune needs name=value");
+                }
+                options.tuning.set(assignment[0], Float.parseFloat(assignment[1]));
+            } else if (arg.startsWith("--sweep=")) {
+                options.sweeps.add(parseSweep(value(arg)));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.captureDirectory != null && options.capturePipe != null) {
+            throw new IllegalArgumentException("Use either --capture-dir or --capture-pipe, not both");
+        }
+        return options;
+    }
+
+    // HOST or HOST:PORT
+    private static void parseAddress(GameOptions options, String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon > 0 && address.indexOf(':') == colon) {
+            options.coopAddress = address.substring(0, colon);
+            options.coopPort = Integer.parseInt(address.substring(colon + 1));
+        } else {
+            options.coopAddress = address;
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    // "name=from:to:step" or "name=a,b,c"
+    private static Sweep parseSweep(String spec) {
+        String[] assignment = spec.split("=", 2);
+        if (assignment.length != 2) {
+            throw new IllegalArgumentException("Expected --sweep=name=from:to:step or --sweep=name=a,b,c");
+        }
+        new GameTuning().get(assignment[0]); // rejects unknown names up front
+
+        float[] values;
+        if (assignment[1].contains(":")) {
+            String[] range = assignment[1].split(":");
+            if (range.length != 3) {
+                throw new IllegalArgumentException("Bad sweep range: " + spec);
+            }
+            float from = Float.parseFloat(range[0]);
+            float to = Float.parseFloat(range[1]);
+            float step = Float.parseFloat(range[2]);
+            if (step <= 0 || to < from) {
+                throw new IllegalArgumentException("Bad sweep range: " + spec);
+            }
+            int count = (int) Math.floor((to - from) / step + 1e-4) + 1;
+            values = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = from + i * step;
+            }
+        } else {
+            String[] list = assignment[1].split(",");
+            values = new float[list.length];
+            for (int i = 0; i < list.length; i++) {
+                values[i] = Float.parseFloat(list[i]);
+            }
+        }
+        return new Sweep(assignment[0], values);
+    }
+
+    private static float positiveFloat(String arg) {
+        float value = Float.parseFloat(value(arg));
+        if (!(value > 0)) {
+            throw new IllegalArgumentException("Expected a positive number: " + arg);
+        }
+        return value;
+    }
+
+    private static int nonNegativeInt(String arg) {
+        int value = Integer.parseInt(value(arg));
+        if (value < 0) {
+            throw new IllegalArgumentException("Expected a non-negative number: " + arg);
+        }
+        return value;
+    }
+
+    private static int positiveInt(String arg) {
+        int value = nonNegativeInt(arg);
+        if (value == 0) {
+            throw new IllegalArgumentException("Expected a positive number: " + arg);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,44 @@
+class GameTuning {
+    // Obstacle travel per 1/SPEED_RATE seconds, so the speed doesn't depend on --tick-rate
+    static final float SPEED_RATE = 60f;
+    float gameSpeed = 0.05f;
+    // Seconds between obstacle spawns
+    float spawnInterval = 1.5f;
+    // Upward velocity at the start of a jump
+    float jumpVelocity = 5.0f;
+    // How close an obstacle gets before the NPC jumps it
+    float npcJumpDistance = 5.0f;
+
+    static final String[] PARAMETERS = {"gameSpeed", "spawnInterval", "jumpVelocity", "npcJumpDistance"};
+
+    GameTuning copy() {
+        GameTuning copy = new GameTuning();
+        copy.gameSpeed = gameSpeed;
+        copy.spawnInterval = spawnInterval;
+        copy.jumpVelocity = jumpVelocity;
+        copy.npcJumpDistance = npcJumpDistance;
+        return copy;
+    }
+
+    void set(String parameter, float value) {
+        switch (parameter) {
+            case "gameSpeed": gameSpeed = value; break;
+            case "spawnInterval": spawnInterval = value; break;
+            case "jumpVelocity": jumpVelocity = value; break;
+            case "npcJumpDistance": npcJumpDistance = value; break;
+            default:
+                throw new IllegalArgumentException("Unknown tuning parameter: " + parameter);
+        }
+    }
+
+    float get(String parameter) {
+        switch (parameter) {
+            case "gameSpeed": return gameSpeed;
+            case "spawnInterval": return spawnInterval;
+            case "jumpVelocity": return jumpVelocity;
+            case "npcJumpDistance": return npcJumpDistance;
+            default:
+                throw new IllegalArgumentException("Unknown tuning parameter: " + parameter);
+        }
+    }
+}
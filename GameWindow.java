@@ -0,0 +1,49 @@
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+
+class GameWindow {
+    private static boolean nullPlatform = false;
+
+    static void initGlfw(boolean headless) {
+        // With no display server, GLFW's null platform plus an EGL context gives a
+        // surfaceless context (Mesa's llvmpipe works fine); everything is drawn into an FBO
+        if (headless && !hasDisplay() && GLFW.glfwPlatformSupported(GLFW.GLFW_PLATFORM_NULL)) {
+            GLFW.glfwInitHint(GLFW.GLFW_PLATFORM, GLFW.GLFW_PLATFORM_NULL);
+            nullPlatform = true;
+        }
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalArgumentException("Unable to initialize GLFW");
+        }
+    }
+
+    static long create(int width, int height, String title, boolean coreProfile, boolean visible) {
+        GLFW.glfwDefaultWindowHints();
+        if (coreProfile) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        }
+        if (!visible) {
+            GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        }
+        if (nullPlatform) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_EGL_CONTEXT_API);
+        }
+
+        long window = GLFW.glfwCreateWindow(width, height, title, 0, 0);
+        if (window == 0) {
+            throw new RuntimeException("Failed to create the GLFW window");
+        }
+
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        return window;
+    }
+
+    private static boolean hasDisplay() {
+        return System.getenv("DISPLAY") != null || System.getenv("WAYLAND_DISPLAY") != null
+                || !System.getProperty("os.name").startsWith("Linux");
+    }
+}
@@ -0,0 +1,371 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class GameWorld {
+    enum DeathCause {
+        NO_JUMP,    // ran into an obstacle without jumping for it
+        LANDED_ON,  // came down from a jump straight onto an obstacle
+        CLIPPED,    // jumped, but not high or late enough to clear it
+        NO_SLIDE,   // ran into a raised obstacle without sliding under it
+        NONE
+    }
+
+    private static final float[] LANES = {-2f, 0f, 2f};
+    private static final float[] LANE_PAIRS = {-1f, 1f}; // centres of obstacles covering two lanes
+    private static final float SPAWN_DISTANCE = 50f;
+    private static final float LANDING_WINDOW = 0.2f;
+    // writeState layout: time, last spawn, score, game over, cause and random state, then per obstacle a type and 5 floats
+    private static final int STATE_HEADER_SIZE = 22;
+    private static final int OBSTACLE_STATE_SIZE = 21;
+
+    private final GameTuning tuning;
+    private final List<ObstacleArchetype> archetypes;
+    private final float totalWeight;
+    private final StateRandom random;
+    private final boolean autopilot;
+    private final boolean humanTeammate;
+    private GameEvents events;
+
+    private final Player player;
+    private final Player teammate;
+    private final Terrain terrain;
+    private final List<Obstacle> obstacles = new ArrayList<>();
+    private final List<Obstacle> obstaclePool = new ArrayList<>();
+
+    // The same obstacles grouped by archetype, so motion, collision and drawing run one archetype at a time
+    private final List<List<Obstacle>> obstaclesByType = new ArrayList<>();
+
+    // Scratch space for grounding all obstacles with one batched terrain query
+    private float[] groundX = new float[16];
+    private float[] groundZ = new float[16];
+    private float[] groundY = new float[16];
+
+    private float time = 0;
+    private float lastSpawnTime = Float.NEGATIVE_INFINITY;
+    private int score = 0;
+    private boolean gameOver = false;
+    private DeathCause deathCause = DeathCause.NONE;
+
+    // With autopilot the player is driven by the same AI as the teammate,
+    // which is what the batch simulator measures
+    GameWorld(GameTuning tuning, List<ObstacleArchetype> archetypes, long seed, boolean autopilot) {
+        this(tuning, archetypes, seed, autopilot, false);
+    }
+
+    // A human teammate replaces the NPC for network co-op: its input is applied from outside,
+    // like the player's, and either runner hitting an obstacle ends the run
+    GameWorld(GameTuning tuning, List<ObstacleArchetype> archetypes, long seed, boolean autopilot, boolean humanTeammate) {
+        this.tuning = tuning;
+        this.archetypes = archetypes;
+        this.random = new StateRandom();
+        this.humanTeammate = humanTeammate;
+
+        float weights = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            weights += archetypes.get(i).weight;
+            obstaclesByType.add(new ArrayList<>());
+        }
+        this.totalWeight = weights;
+        this.autopilot = autopilot;
+
+        player = autopilot ? new NPCPlayer(0, 0, 0, new Random()) : new Player(0, 0, 0);
+        teammate = humanTeammate ? new Player(-2.0f, 0, 8.0f) : new NPCPlayer(-2.0f, 0, 8.0f, new Random());
+        if (humanTeammate) teammate.setColor(1.0f, 0.5f, 0.0f);
+        player.setJumpStrength(tuning.jumpVelocity);
+        teammate.setJumpStrength(tuning.jumpVelocity);
+        terrain = new Terrain();
+
+        reset(seed);
+    }
+
+    // Puts the world back to the start of a run, keeping every object it owns
+    void reset(long seed) {
+        random.setSeed(seed);
+        if (autopilot) {
+            ((NPCPlayer) player).reseed(random.nextLong());
+        }
+        if (!humanTeammate) {
+            ((NPCPlayer) teammate).reseed(random.nextLong());
+        }
+
+        player.reset(0, 0, 0);
+        teammate.reset(-2.0f, 0, 8.0f);
+        for (int i = 0; i < obstacles.size(); i++) {
+            obstaclePool.add(obstacles.get(i));
+        }
+        obstacles.clear();
+        for (int i = 0; i < obstaclesByType.size(); i++) {
+            obstaclesByType.get(i).clear();
+        }
+
+        time = 0;
+        lastSpawnTime = Float.NEGATIVE_INFINITY;
+        score = 0;
+        gameOver = false;
+        deathCause = DeathCause.NONE;
+    }
+
+    void setEvents(GameEvents events) {
+        this.events = events;
+    }
+
+    GameEvents getEvents() { return events; }
+
+    Player getPlayer() { return player; }
+    Player getTeammate() { return teammate; }
+    Terrain getTerrain() { return terrain; }
+    List<Obstacle> getObstacles() { return obstacles; }
+    List<ObstacleArchetype> getArchetypes() { return archetypes; }
+    List<Obstacle> getObstacles(ObstacleArchetype type) { return obstaclesByType.get(type.index); }
+    int getScore() { return score; }
+    float getTime() { return time; }
+    boolean isGameOver() { return gameOver; }
+    DeathCause getDeathCause() { return deathCause; }
+
+    // Advances the world by one step; player input has already been applied for this step
+    void update(float deltaTime) {
+        if (gameOver) return;
+        time += deltaTime;
+
+        if (autopilot) {
+            ((NPCPlayer) player).updateAI(deltaTime, obstacles, tuning.npcJumpDistance, terrain);
+        } else {
+            player.update(deltaTime, terrain);
+        }
+        if (humanTeammate) {
+            teammate.update(deltaTime, terrain);
+        } else {
+            ((NPCPlayer) teammate).updateAI(deltaTime, obstacles, tuning.npcJumpDistance, terrain);
+        }
+
+        spawnObstacles();
+        updateObstacles(deltaTime);
+        groundObstacles();
+        checkCollisions(player);
+        if (humanTeammate && !gameOver) {
+            checkCollisions(teammate);
+        }
+    }
+
+    private void spawnObstacles() {
+        if (time - lastSpawnTime > tuning.spawnInterval) {
+            float zPos = player.getZ() + SPAWN_DISTANCE;
+            ObstacleArchetype type = archetypes.size() == 1 ? archetypes.get(0) : pickArchetype();
+            float xPos = type.lanes == 1 ? LANES[random.nextInt(LANES.length)]
+                    : type.lanes == 2 ? LANE_PAIRS[random.nextInt(LANE_PAIRS.length)]
+                    : 0;
+            float phase = type.motion == ObstacleArchetype.Motion.SWAY ? random.nextFloat() * 2 * (float) Math.PI : 0;
+
+            Obstacle obstacle;
+            if (obstaclePool.isEmpty()) {
+                obstacle = new Obstacle(type, xPos, 0, zPos);
+            } else {
+                obstacle = obstaclePool.remove(obstaclePool.size() - 1);
+            }
+            obstacle.reset(type, xPos, 0, zPos, phase);
+            obstacles.add(obstacle);
+            obstaclesByType.get(type.index).add(obstacle);
+            if (events != null) events.obstacleSpawned(obstacle, player);
+            lastSpawnTime = time;
+        }
+    }
+
+    private ObstacleArchetype pickArchetype() {
+        float pick = random.nextFloat() * totalWeight;
+        for (int i = 0; i < archetypes.size(); i++) {
+            pick -= archetypes.get(i).weight;
+            if (pick < 0) return archetypes.get(i);
+        }
+        return archetypes.get(archetypes.size() - 1);
+    }
+
+    private void updateObstacles(float deltaTime) {
+        // Motion is decided once per archetype, then applied to all of its obstacles
+        float travel = tuning.gameSpeed * deltaTime * GameTuning.SPEED_RATE;
+        for (int t = 0; t < archetypes.size(); t++) {
+            ObstacleArchetype type = archetypes.get(t);
+            List<Obstacle> group = obstaclesByType.get(t);
+            switch (type.motion) {
+                case STATIC:
+                    for (int i = 0; i < group.size(); i++) {
+                        group.get(i).update(travel);
+                    }
+                    break;
+                case CHARGE:
+                    float speed = travel * type.speed;
+                    for (int i = 0; i < group.size(); i++) {
+                        group.get(i).update(speed);
+                    }
+                    break;
+                case SWAY:
+                    float angle = 2 * (float) Math.PI * type.frequency * time;
+                    for (int i = 0; i < group.size(); i++) {
+                        Obstacle o = group.get(i);
+                        o.update(travel);
+                        float x = o.getLaneX() + type.amplitude * (float) Math.sin(angle + o.getPhase());
+                        o.setX(Math.max(LANES[0], Math.min(LANES[LANES.length - 1], x)));
+                    }
+                    break;
+            }
+        }
+
+        for (int i = obstacles.size() - 1; i >= 0; i--) {
+            Obstacle o = obstacles.get(i);
+            if (o.getZ() < player.getZ() - 10f) {
+                obstacles.remove(i);
+                obstaclesByType.get(o.getType().index).remove(o);
+                score++;
+                if (events != null) events.obstacleCleared(o, score);
+                obstaclePool.add(o);
+            }
+        }
+    }
+
+    private void groundObstacles() {
+        int count = obstacles.size();
+        if (count > groundX.length) {
+            int capacity = Math.max(count, groundX.length * 2);
+            groundX = new float[capacity];
+            groundZ = new float[capacity];
+            groundY = new float[capacity];
+        }
+
+        for (int i = 0; i < count; i++) {
+            Obstacle o = obstacles.get(i);
+            groundX[i] = o.getX();
+            groundZ[i] = o.getZ();
+        }
+        terrain.getTerrainHeightsAt(groundX, groundZ, groundY, count);
+        for (int i = 0; i < count; i++) {
+            obstacles.get(i).setY(groundY[i]);
+        }
+    }
+
+    // Player against each archetype's collision volume: the reach along each axis is worked out
+    // once per archetype, leaving a plain overlap test per obstacle
+    private void checkCollisions(Player runner) {
+        float bottom = runner.getY();
+        float top = bottom + runner.getCollisionHeight();
+
+        for (int t = 0; t < archetypes.size(); t++) {
+            ObstacleArchetype type = archetypes.get(t);
+            if (type.collision == ObstacleArchetype.Collision.NONE) continue;
+
+            float reachX = (Player.WIDTH + type.hitWidth) / 2;
+            float reachZ = (Player.DEPTH + type.hitDepth) / 2;
+            List<Obstacle> group = obstaclesByType.get(t);
+            for (int i = 0; i < group.size(); i++) {
+                Obstacle obstacle = group.get(i);
+                float obstacleBottom = obstacle.getY() + type.lift;
+                if (Math.abs(runner.getX() - obstacle.getX()) < reachX &&
+                        Math.abs(runner.getZ() - obstacle.getZ()) < reachZ &&
+                        bottom < obstacleBottom + type.hitHeight && top > obstacleBottom) {
+                    gameOver = true;
+                    deathCause = causeOfDeath(runner, type);
+                    if (events != null) events.playerHit(obstacle);
+                    return;
+                }
+            }
+        }
+    }
+
+    private DeathCause causeOfDeath(Player runner, ObstacleArchetype type) {
+        if (type.lift > 0) return DeathCause.NO_SLIDE;
+        if (runner.isAirborne()) return DeathCause.CLIPPED;
+        return runner.getTimeSinceLanding() < LANDING_WINDOW ? DeathCause.LANDED_ON : DeathCause.NO_JUMP;
+    }
+
+    // Everything the simulation depends on, for co-op snapshots. Only worlds with a human teammate
+    // can be captured (the NPC's AI state isn't), and both ends must have loaded the same archetypes
+    void writeState(ByteBuffer out) {
+        if (!humanTeammate) throw new IllegalStateException("Only co-op worlds can be captured");
+        out.putFloat(time).putFloat(lastSpawnTime).putInt(score);
+        out.put((byte) (gameOver ? 1 : 0)).put((byte) deathCause.ordinal());
+        out.putLong(random.getState());
+        player.writeState(out);
+        teammate.writeState(out);
+        out.putShort((short) obstacles.size());
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle o = obstacles.get(i);
+            out.put((byte) o.getType().index);
+            out.putFloat(o.getX()).putFloat(o.getY()).putFloat(o.getZ()).putFloat(o.getLaneX()).putFloat(o.getPhase());
+        }
+    }
+
+    // Whether readState would accept this: sizes add up and every index is in range. Reads nothing off the buffer
+    boolean isValidState(ByteBuffer in) {
+        int start = in.position();
+        int obstaclesAt = start + STATE_HEADER_SIZE + 2 * Player.STATE_SIZE;
+        if (in.limit() < obstaclesAt + 2) return false;
+        int cause = in.get(start + 13);
+        int count = in.getShort(obstaclesAt);
+        if (cause < 0 || cause >= DeathCause.values().length || count < 0
+                || in.limit() < obstaclesAt + 2 + count * OBSTACLE_STATE_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int type = in.get(obstaclesAt + 2 + i * OBSTACLE_STATE_SIZE);
+            if (type < 0 || type >= archetypes.size()) return false;
+        }
+        return true;
+    }
+
+    void readState(ByteBuffer in) {
+        if (!humanTeammate) throw new IllegalStateException("Only co-op worlds can be restored");
+        if (!isValidState(in)) throw new IllegalArgumentException("Malformed world state");
+        time = in.getFloat();
+        lastSpawnTime = in.getFloat();
+        score = in.getInt();
+        gameOver = in.get() != 0;
+        deathCause = DeathCause.values()[in.get()];
+        random.setState(in.getLong());
+        player.readState(in);
+        teammate.readState(in);
+
+        for (int i = 0; i < obstacles.size(); i++) {
+            obstaclePool.add(obstacles.get(i));
+        }
+        obstacles.clear();
+        for (int i = 0; i < obstaclesByType.size(); i++) {
+            obstaclesByType.get(i).clear();
+        }
+        // The per-type lists keep spawn order, so rebuilding them from the full list matches the sender
+        int count = in.getShort();
+        for (int i = 0; i < count; i++) {
+            ObstacleArchetype type = archetypes.get(in.get());
+            float x = in.getFloat(), y = in.getFloat(), z = in.getFloat(), laneX = in.getFloat(), phase = in.getFloat();
+            Obstacle o = obstaclePool.isEmpty() ? new Obstacle(type, laneX, y, z) : obstaclePool.remove(obstaclePool.size() - 1);
+            o.reset(type, laneX, y, z, phase);
+            o.setX(x);
+            obstacles.add(o);
+            obstaclesByType.get(type.index).add(o);
+        }
+    }
+
+    // java.util.Random's generator with its state exposed, so a snapshot can carry it.
+    // Draws exactly the same sequence as Random for the same seed
+    static class StateRandom extends Random {
+        private static final long serialVersionUID = 1L;
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long MASK = (1L << 48) - 1;
+
+        private long state; // no initializer: Random's constructor calls setSeed first
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            super.setSeed(seed);
+            state = (seed ^ MULTIPLIER) & MASK;
+        }
+
+        @Override
+        protected int next(int bits) {
+            state = (state * MULTIPLIER + 0xBL) & MASK;
+            return (int) (state >>> (48 - bits));
+        }
+
+        long getState() { return state; }
+        void setState(long state) { this.state = state; }
+    }
+}
@@ -0,0 +1,149 @@
+import org.lwjgl.opengl.EXTTimerQuery;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.Locale;
+
+// GPU time per render pass from GL_TIME_ELAPSED queries, next to the CPU time spent submitting it.
+// Each pass has a ring of queries a few frames deep and a result is only read once the driver
+// says it's available, so profiling never waits on the GPU. Without timer queries (GL 3.3,
+// ARB_timer_query or EXT_timer_query) only the CPU side is measured
+class GpuProfiler {
+    enum Pass {
+        TERRAIN,
+        RUNNERS,
+        OBSTACLES,
+        HUD
+    }
+
+    private static final int PASSES = Pass.values().length;
+    private static final int FRAMES = 4; // queries in flight per pass; results usually land within two frames
+
+    private final boolean supported;
+    private final boolean extension; // EXT_timer_query only: 64-bit results come through the EXT entry point
+    private final int[][] queries = new int[PASSES][FRAMES];
+    private final boolean[][] pending = new boolean[PASSES][FRAMES];
+    private long frame = 0;
+
+    private Pass current;
+    private long cpuStart;
+
+    // Totals since the last report
+    private final long[] gpuNanos = new long[PASSES];
+    private final long[] gpuSamples = new long[PASSES];
+    private final long[] cpuNanos = new long[PASSES];
+    private final long[] cpuSamples = new long[PASSES];
+    private long frames = 0;
+    private long dropped = 0;
+
+    GpuProfiler() {
+        GLCapabilities caps = GL.getCapabilities();
+        boolean core = caps.OpenGL33 || caps.GL_ARB_timer_query;
+        extension = !core && caps.GL_EXT_timer_query;
+        supported = caps.OpenGL15 && (core || extension);
+        if (!supported) {
+            System.err.println("GPU timer queries unavailable (no ARB_timer_query); profiling CPU submission time only");
+            return;
+        }
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int slot = 0; slot < FRAMES; slot++) {
+                queries[pass][slot] = GL15.glGenQueries();
+            }
+        }
+    }
+
+    boolean isSupported() { return supported; }
+
+    // Collects whatever finished since last frame
+    void beginFrame() {
+        frame++;
+        frames++;
+        if (!supported) return;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int slot = 0; slot < FRAMES; slot++) {
+                if (pending[pass][slot]) collect(pass, slot);
+            }
+        }
+    }
+
+    void begin(Pass pass) {
+        current = pass;
+        cpuStart = System.nanoTime();
+        if (!supported) return;
+
+        int index = pass.ordinal();
+        int slot = (int) (frame % FRAMES);
+        if (pending[index][slot]) {
+            collect(index, slot);
+            if (pending[index][slot]) {
+                dropped++; // the GPU is more than FRAMES behind; reuse the query and lose that sample
+                pending[index][slot] = false;
+            }
+        }
+        GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, queries[index][slot]);
+    }
+
+    void end() {
+        int index = current.ordinal();
+        if (supported) {
+            GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+            pending[index][(int) (frame % FRAMES)] = true;
+        }
+        cpuNanos[index] += System.nanoTime() - cpuStart;
+        cpuSamples[index]++;
+    }
+
+    private void collect(int pass, int slot) {
+        int query = queries[pass][slot];
+        if (GL15.glGetQueryObjecti(query, GL15.GL_QUERY_RESULT_AVAILABLE) == 0) return;
+        long nanos = extension
+                ? EXTTimerQuery.glGetQueryObjectui64EXT(query, GL15.GL_QUERY_RESULT)
+                : GL33.glGetQueryObjectui64(query, GL15.GL_QUERY_RESULT);
+        gpuNanos[pass] += nanos;
+        gpuSamples[pass]++;
+        pending[pass][slot] = false;
+    }
+
+    // Average per frame of each pass, GPU / CPU in milliseconds, then resets the totals
+    String report() {
+        StringBuilder line = new StringBuilder(160);
+        line.append(supported ? "GPU / CPU ms per pass over " : "CPU ms per pass (no GPU timers) over ")
+                .append(frames).append(" frames:");
+        double gpuTotal = 0;
+        double cpuTotal = 0;
+        for (Pass pass : Pass.values()) {
+            int i = pass.ordinal();
+            double cpu = cpuSamples[i] > 0 ? cpuNanos[i] / 1e6 / cpuSamples[i] : 0;
+            cpuTotal += cpu;
+            line.append(' ').append(pass.name().toLowerCase(Locale.ROOT)).append(' ');
+            if (supported) {
+                double gpu = gpuSamples[i] > 0 ? gpuNanos[i] / 1e6 / gpuSamples[i] : 0;
+                gpuTotal += gpu;
+                line.append(String.format(Locale.ROOT, "%.3f / ", gpu));
+            }
+            line.append(String.format(Locale.ROOT, "%.3f", cpu));
+        }
+        line.append(" | total ");
+        if (supported) line.append(String.format(Locale.ROOT, "%.3f / ", gpuTotal));
+        line.append(String.format(Locale.ROOT, "%.3f", cpuTotal));
+        if (dropped > 0) line.append(", ").append(dropped).append(" results dropped");
+
+        for (int i = 0; i < PASSES; i++) {
+            gpuNanos[i] = gpuSamples[i] = cpuNanos[i] = cpuSamples[i] = 0;
+        }
+        frames = 0;
+        dropped = 0;
+        return line.toString();
+    }
+
+    void delete() {
+        if (!supported) return;
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int slot = 0; slot < FRAMES; slot++) {
+                GL15.glDeleteQueries(queries[pass][slot]);
+            }
+        }
+    }
+}
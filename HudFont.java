@@ -0,0 +1,140 @@
+class HudFont {
+    static final float ADVANCE = 10.0f;
+    static final float SCALE = 1.5f;
+
+    // Line segments per character, as x0, y0, x1, y1 in a 6x10 cell
+    private static final float[][] GLYPHS = new float[128][];
+
+    static {
+        GLYPHS['0'] = new float[] {
+                0, 0, 0, 10,
+                0, 10, 6, 10,
+                6, 10, 6, 0,
+                6, 0, 0, 0
+        };
+        GLYPHS['1'] = new float[] {
+                3, 0, 3, 10
+        };
+        GLYPHS['2'] = new float[] {
+                0, 10, 6, 10,
+                6, 10, 6, 5,
+                6, 5, 0, 5,
+                0, 5, 0, 0,
+                0, 0, 6, 0
+        };
+        GLYPHS['3'] = new float[] {
+                0, 10, 6, 10,
+                6, 10, 6, 0,
+                0, 5, 6, 5,
+                0, 0, 6, 0
+        };
+        GLYPHS['4'] = new float[] {
+                0, 10, 0, 5,
+                0, 5, 6, 5,
+                6, 0, 6, 10
+        };
+        GLYPHS['5'] = new float[] {
+                6, 10, 0, 10,
+                0, 10, 0, 5,
+                0, 5, 6, 5,
+                6, 5, 6, 0,
+                6, 0, 0, 0
+        };
+        GLYPHS['6'] = new float[] {
+                6, 10, 0, 10,
+                0, 10, 0, 0,
+                0, 0, 6, 0,
+                6, 0, 6, 5,
+                6, 5, 0, 5
+        };
+        GLYPHS['7'] = new float[] {
+                0, 10, 6, 10,
+                6, 10, 0, 0
+        };
+        GLYPHS['8'] = new float[] {
+                0, 0, 0, 10,
+                6, 0, 6, 10,
+                0, 5, 6, 5,
+                0, 0, 6, 0,
+                0, 10, 6, 10
+        };
+        GLYPHS['9'] = new float[] {
+                0, 0, 6, 0,
+                6, 0, 6, 10,
+                6, 10, 0, 10,
+                0, 10, 0, 5,
+                0, 5, 6, 5
+        };
+        GLYPHS[':'] = new float[] {
+                3, 2, 3, 2,
+                3, 8, 3, 8
+        };
+        GLYPHS['C'] = new float[] {
+                6, 10, 0, 10,
+                0, 10, 0, 0,
+                0, 0, 6, 0
+        };
+        GLYPHS['E'] = new float[] {
+                6, 10, 0, 10,
+                0, 10, 0, 0,
+                0, 0, 6, 0,
+                0, 5, 4, 5
+        };
+        GLYPHS['A'] = new float[] {
+                0, 0, 0, 10,
+                0, 10, 6, 10,
+                6, 10, 6, 0,
+                0, 5, 6, 5
+        };
+        GLYPHS['D'] = new float[] {
+                0, 0, 0, 10,
+                0, 10, 4, 10,
+                4, 10, 6, 7,
+                6, 7, 6, 3,
+                6, 3, 4, 0,
+                4, 0, 0, 0
+        };
+        GLYPHS['G'] = new float[] {
+                6, 10, 0, 10,
+                0, 10, 0, 0,
+                0, 0, 6, 0,
+                6, 0, 6, 5,
+                6, 5, 3, 5
+        };
+        GLYPHS['M'] = new float[] {
+                0, 0, 0, 10,
+                0, 10, 3, 5,
+                3, 5, 6, 10,
+                6, 10, 6, 0
+        };
+        GLYPHS['P'] = new float[] {
+                0, 0, 0, 10,
+                0, 10, 6, 10,
+                6, 10, 6, 5,
+                6, 5, 0, 5
+        };
+        GLYPHS['T'] = new float[] {
+                0, 10, 6, 10,
+                3, 10, 3, 0
+        };
+        GLYPHS['U'] = new float[] {
+                0, 10, 0, 0,
+                0, 0, 6, 0,
+                6, 0, 6, 10
+        };
+        GLYPHS['V'] = new float[] {
+                0, 10, 3, 0,
+                3, 0, 6, 10
+        };
+        GLYPHS['S'] = GLYPHS['5'];
+        GLYPHS['O'] = GLYPHS['0'];
+        GLYPHS['R'] = GLYPHS['2'];
+        for (char c = 'a'; c <= 'z'; c++) {
+            GLYPHS[c] = GLYPHS[Character.toUpperCase(c)];
+        }
+    }
+
+    static float[] glyph(char c) {
+        return c < GLYPHS.length ? GLYPHS[c] : null;
+    }
+}
@@ -0,0 +1,67 @@
+import org.lwjgl.glfw.GLFW;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+class InputBindings {
+    enum Action {
+        LEFT,
+        RIGHT,
+        JUMP,
+        SLIDE,
+        PAUSE,
+        RESTART
+    }
+
+    private static final int NONE = -1;
+
+    private final int[] actionForKey = new int[GLFW.GLFW_KEY_LAST + 1];
+
+    InputBindings() {
+        Arrays.fill(actionForKey, NONE);
+        bind(Action.LEFT, GLFW.GLFW_KEY_LEFT);
+        bind(Action.RIGHT, GLFW.GLFW_KEY_RIGHT);
+        bind(Action.JUMP, GLFW.GLFW_KEY_UP);
+        bind(Action.SLIDE, GLFW.GLFW_KEY_DOWN);
+        bind(Action.PAUSE, GLFW.GLFW_KEY_P);
+        bind(Action.PAUSE, GLFW.GLFW_KEY_ESCAPE);
+        bind(Action.RESTART, GLFW.GLFW_KEY_R);
+        bind(Action.RESTART, GLFW.GLFW_KEY_ENTER);
+    }
+
+    void bind(Action action, int key) {
+        actionForKey[key] = action.ordinal();
+    }
+
+    void clear(Action action) {
+        for (int key = 0; key < actionForKey.length; key++) {
+            if (actionForKey[key] == action.ordinal()) actionForKey[key] = NONE;
+        }
+    }
+
+    // Index into Action.values(), or -1 for unbound keys
+    int actionFor(int key) {
+        return key >= 0 && key < actionForKey.length ? actionForKey[key] : NONE;
+    }
+
+    // "jump=SPACE,UP" replaces the keys for jump; names are GLFW_KEY_* without the prefix
+    void parse(String spec) {
+        String[] assignment = spec.split("=", 2);
+        if (assignment.length != 2) {
+            throw new IllegalArgumentException("Expected --bind=action=KEY[,KEY...]");
+        }
+        Action action = Action.valueOf(assignment[0].toUpperCase(Locale.ROOT));
+        clear(action);
+        for (String name : assignment[1].split(",")) {
+            bind(action, keyCode(name.trim()));
+        }
+    }
+
+    private static int keyCode(String name) {
+        try {
+            return GLFW.class.getField("GLFW_KEY_" + name.toUpperCase(Locale.ROOT)).getInt(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Unknown key: " + name);
+        }
+    }
+}
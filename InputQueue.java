@@ -0,0 +1,97 @@
+import org.lwjgl.glfw.GLFW;
+
+class InputQueue {
+    private static final int CAPACITY = 256; // power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int ACTIONS = InputBindings.Action.values().length;
+
+    private final InputBindings bindings;
+
+    // Preallocated ring; the key callback writes, the simulation tick reads (both on the main thread)
+    private final long[] timestamps = new long[CAPACITY];
+    private final byte[] actions = new byte[CAPACITY];
+    private final boolean[] presses = new boolean[CAPACITY];
+    private long head = 0;
+    private long tail = 0;
+    private long overflowed = 0;
+
+    private final boolean[] held = new boolean[ACTIONS];
+    private final boolean[] pressedThisTick = new boolean[ACTIONS];
+
+    private long latencyTotal = 0;
+    private long latencyCount = 0;
+    private long latencyMax = 0;
+
+    InputQueue(InputBindings bindings) {
+        this.bindings = bindings;
+    }
+
+    void attach(long window) {
+        GLFW.glfwSetKeyCallback(window, (w, key, scancode, action, mods) -> onKey(key, action));
+    }
+
+    void onKey(int key, int keyAction) {
+        if (keyAction == GLFW.GLFW_REPEAT) return;
+        int action = bindings.actionFor(key);
+        if (action < 0) return;
+
+        if (head - tail == CAPACITY) {
+            tail++; // full: the oldest event goes, newer input matters more
+            overflowed++;
+        }
+        int slot = (int) (head & MASK);
+        timestamps[slot] = System.nanoTime();
+        actions[slot] = (byte) action;
+        presses[slot] = keyAction == GLFW.GLFW_PRESS;
+        head++;
+    }
+
+    // Applies everything received so far to this tick. A press always counts for
+    // the tick that consumes it, even if the release arrived before the tick ran
+    void consumeTick(long tickTime) {
+        for (int i = 0; i < ACTIONS; i++) {
+            pressedThisTick[i] = false;
+        }
+
+        while (tail != head) {
+            int slot = (int) (tail & MASK);
+            int action = actions[slot];
+            if (presses[slot]) {
+                held[action] = true;
+                pressedThisTick[action] = true;
+            } else {
+                held[action] = false;
+            }
+
+            long latency = tickTime - timestamps[slot];
+            latencyTotal += latency;
+            latencyCount++;
+            latencyMax = Math.max(latencyMax, latency);
+            tail++;
+        }
+    }
+
+    boolean isActive(InputBindings.Action action) {
+        return held[action.ordinal()] || pressedThisTick[action.ordinal()];
+    }
+
+    // Pressed since the previous tick, for one-shot actions like pause
+    boolean wasPressed(InputBindings.Action action) {
+        return pressedThisTick[action.ordinal()];
+    }
+
+    void reset() {
+        tail = head;
+        for (int i = 0; i < ACTIONS; i++) {
+            held[i] = false;
+            pressedThisTick[i] = false;
+        }
+    }
+
+    long getOverflowed() { return overflowed; }
+    long getMaxLatencyNanos() { return latencyMax; }
+
+    long getAverageLatencyNanos() {
+        return latencyCount == 0 ? 0 : latencyTotal / latencyCount;
+    }
+}
@@ -0,0 +1,183 @@
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+class LegacyRenderer implements Renderer {
+    private int width;
+    private int height;
+    private final float[] view = new float[16];
+    private final FloatBuffer viewBuffer = BufferUtils.createFloatBuffer(16);
+    private final float[] cubeVertices = Mesh.cubeVertices();
+    private final float[] sphereVertices = Mesh.sphereVertices(16, 16);
+
+    public void init(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glLoadIdentity();
+        setPerspectiveProjection(45.0f, (float) width / height, 0.1f, 100.0f);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+
+        initLighting();
+
+        GL11.glEnable(GL11.GL_COLOR_MATERIAL);
+        GL11.glColorMaterial(GL11.GL_FRONT_AND_BACK, GL11.GL_AMBIENT_AND_DIFFUSE);
+
+        FloatBuffer lightPosition = BufferUtils.createFloatBuffer(4).put(new float[]{0.0f, 10.0f, 10.0f, 1.0f});
+        lightPosition.flip();
+        GL11.glLightfv(GL11.GL_LIGHT0, GL11.GL_POSITION, lightPosition);
+
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glDepthFunc(GL11.GL_LEQUAL);
+
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+    }
+
+    public void beginFrame() {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        GL11.glLoadIdentity();
+    }
+
+    public void setCamera(float eyeX, float eyeY, float eyeZ,
+                          float centerX, float centerY, float centerZ,
+                          float upX, float upY, float upZ) {
+        GL11.glLoadIdentity();
+        gluLookAt(eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ);
+    }
+
+    public void drawTerrain(Terrain terrain) {
+        terrain.render();
+    }
+
+    public void drawRunner(Player runner, Terrain terrain) {
+        runner.render(terrain);
+    }
+
+    // One glBegin for a whole archetype: vertices are placed on the CPU rather than
+    // pushing a matrix and issuing a draw per obstacle
+    public void drawObstacles(ObstacleArchetype type, List<Obstacle> obstacles) {
+        if (obstacles.isEmpty()) return;
+
+        boolean sphere = type.shape == ObstacleArchetype.Shape.SPHERE;
+        float[] vertices = sphere ? sphereVertices : cubeVertices;
+        float unit = sphere ? 0.5f : 1.0f; // the sphere mesh has radius 1, the cube side 1
+        float sx = type.width * unit, sy = type.height * unit, sz = type.depth * unit;
+
+        GL11.glColor3f(type.color[0], type.color[1], type.color[2]);
+        GL11.glShadeModel(GL11.GL_SMOOTH);
+        GL11.glBegin(GL11.GL_TRIANGLES);
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle obstacle = obstacles.get(i);
+            float cx = obstacle.getX();
+            float cy = obstacle.getY() + type.lift + type.height / 2;
+            float cz = obstacle.getZ();
+
+            for (int v = 0; v < vertices.length; v += Mesh.FLOATS_PER_VERTEX) {
+                // Normals scale inversely to the shape so lighting stays right on stretched boxes
+                float nx = vertices[v + 3] / sx, ny = vertices[v + 4] / sy, nz = vertices[v + 5] / sz;
+                float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+                GL11.glNormal3f(nx / length, ny / length, nz / length);
+                GL11.glVertex3f(cx + vertices[v] * sx, cy + vertices[v + 1] * sy, cz + vertices[v + 2] * sz);
+            }
+        }
+        GL11.glEnd();
+    }
+
+    public void drawText(float x, float y, CharSequence text) {
+        GL11.glDisable(GL11.GL_LIGHTING);
+        GL11.glColor3f(1.0f, 1.0f, 1.0f); // White text
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glOrtho(0, width, 0, height, -1, 1);
+
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+
+        GL11.glDisable(GL11.GL_DEPTH_TEST);
+
+        GL11.glTranslatef(x, y, 0);
+        GL11.glScalef(HudFont.SCALE, HudFont.SCALE, 1.0f);
+
+        for (int i = 0; i < text.length(); i++) {
+            drawCharacter(text.charAt(i));
+            GL11.glTranslatef(HudFont.ADVANCE, 0, 0); // space between chars
+        }
+
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glEnable(GL11.GL_LIGHTING);
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPopMatrix();
+    }
+
+    private void drawCharacter(char c) {
+        float[] lines = HudFont.glyph(c);
+        if (lines == null) return;
+
+        GL11.glBegin(GL11.GL_LINES);
+        for (int i = 0; i < lines.length; i += 2) {
+            GL11.glVertex2f(lines[i], lines[i + 1]);
+        }
+        GL11.glEnd();
+    }
+
+    public void cleanup() {
+        // Immediate mode keeps no GL objects around
+    }
+
+    public String getName() {
+        return "legacy";
+    }
+
+    private void initLighting() {
+        GL11.glEnable(GL11.GL_LIGHTING);
+        GL11.glEnable(GL11.GL_LIGHT0);
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glDepthFunc(GL11.GL_LEQUAL);
+
+        FloatBuffer lightPosition = BufferUtils.createFloatBuffer(4).put(new float[]{0.0f, 10.0f, 10.0f, 1.0f});
+        lightPosition.flip();
+        GL11.glLightfv(GL11.GL_LIGHT0, GL11.GL_POSITION, lightPosition);
+
+        FloatBuffer ambientLight = BufferUtils.createFloatBuffer(4).put(new float[]{0.4f, 0.4f, 0.4f, 1.0f});
+        ambientLight.flip();
+        GL11.glLightfv(GL11.GL_LIGHT0, GL11.GL_AMBIENT, ambientLight);
+
+        FloatBuffer diffuseLight = BufferUtils.createFloatBuffer(4).put(new float[]{1.0f, 1.0f, 1.0f, 1.0f});
+        diffuseLight.flip();
+        GL11.glLightfv(GL11.GL_LIGHT0, GL11.GL_DIFFUSE, diffuseLight);
+
+        FloatBuffer specularLight = BufferUtils.createFloatBuffer(4).put(new float[]{1.0f, 1.0f, 1.0f, 1.0f});
+        specularLight.flip();
+        GL11.glLightfv(GL11.GL_LIGHT0, GL11.GL_SPECULAR, specularLight);
+
+        GL11.glEnable(GL11.GL_COLOR_MATERIAL);
+        GL11.glColorMaterial(GL11.GL_FRONT_AND_BACK, GL11.GL_AMBIENT_AND_DIFFUSE);
+    }
+
+    private void setPerspectiveProjection(float fov, float aspect, float zNear, float zFar) {
+        float ymax = (float) (zNear * Math.tan(Math.toRadians(fov / 2.0)));
+        float xmax = ymax * aspect;
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glLoadIdentity();
+        GL11.glFrustum(-xmax, xmax, -ymax, ymax, zNear, zFar);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+    }
+
+    // Same matrix as gluLookAt, built into reused storage so setting the camera doesn't allocate
+    private void gluLookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ, float upX, float upY, float upZ) {
+        Mat4.lookAt(view, eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ);
+        viewBuffer.clear();
+        viewBuffer.put(view).flip();
+        GL11.glMultMatrixf(viewBuffer);
+    }
+}
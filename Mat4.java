@@ -0,0 +1,88 @@
+class Mat4 {
+    // Column-major, matching what glUniformMatrix4fv expects with transpose = false
+
+    static void identity(float[] m) {
+        for (int i = 0; i < 16; i++) m[i] = 0;
+        m[0] = m[5] = m[10] = m[15] = 1;
+    }
+
+    static void perspective(float[] m, float fov, float aspect, float zNear, float zFar) {
+        float ymax = (float) (zNear * Math.tan(Math.toRadians(fov / 2.0)));
+        float xmax = ymax * aspect;
+        frustum(m, -xmax, xmax, -ymax, ymax, zNear, zFar);
+    }
+
+    static void frustum(float[] m, float left, float right, float bottom, float top, float zNear, float zFar) {
+        identity(m);
+        m[0] = 2 * zNear / (right - left);
+        m[5] = 2 * zNear / (top - bottom);
+        m[8] = (right + left) / (right - left);
+        m[9] = (top + bottom) / (top - bottom);
+        m[10] = -(zFar + zNear) / (zFar - zNear);
+        m[11] = -1;
+        m[14] = -2 * zFar * zNear / (zFar - zNear);
+        m[15] = 0;
+    }
+
+    static void ortho(float[] m, float left, float right, float bottom, float top, float zNear, float zFar) {
+        identity(m);
+        m[0] = 2 / (right - left);
+        m[5] = 2 / (top - bottom);
+        m[10] = -2 / (zFar - zNear);
+        m[12] = -(right + left) / (right - left);
+        m[13] = -(top + bottom) / (top - bottom);
+        m[14] = -(zFar + zNear) / (zFar - zNear);
+    }
+
+    static void lookAt(float[] m, float eyeX, float eyeY, float eyeZ,
+                       float centerX, float centerY, float centerZ,
+                       float upX, float upY, float upZ) {
+        float fx = centerX - eyeX, fy = centerY - eyeY, fz = centerZ - eyeZ;
+        float fl = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        if (fl != 0) { fx /= fl; fy /= fl; fz /= fl; }
+
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+        float sl = (float) Math.sqrt(sx * sx + sy * sy + sz * sz);
+        if (sl != 0) { sx /= sl; sy /= sl; sz /= sl; }
+
+        float ux = sy * fz - sz * fy;
+        float uy = sz * fx - sx * fz;
+        float uz = sx * fy - sy * fx;
+
+        m[0] = sx; m[1] = ux; m[2] = -fx; m[3] = 0;
+        m[4] = sy; m[5] = uy; m[6] = -fy; m[7] = 0;
+        m[8] = sz; m[9] = uz; m[10] = -fz; m[11] = 0;
+        m[12] = -(sx * eyeX + sy * eyeY + sz * eyeZ);
+        m[13] = -(ux * eyeX + uy * eyeY + uz * eyeZ);
+        m[14] = fx * eyeX + fy * eyeY + fz * eyeZ;
+        m[15] = 1;
+    }
+
+    static void translation(float[] m, float x, float y, float z) {
+        translationScale(m, x, y, z, 1, 1, 1);
+    }
+
+    static void translationScale(float[] m, float x, float y, float z, float sx, float sy, float sz) {
+        identity(m);
+        m[0] = sx;
+        m[5] = sy;
+        m[10] = sz;
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+    }
+
+    static void multiply(float[] out, float[] a, float[] b) {
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                out[col * 4 + row] =
+                        a[row] * b[col * 4] +
+                        a[4 + row] * b[col * 4 + 1] +
+                        a[8 + row] * b[col * 4 + 2] +
+                        a[12 + row] * b[col * 4 + 3];
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.FloatBuffer;
+
+class Mesh {
+    static final int FLOATS_PER_VERTEX = 6; // position xyz, normal xyz
+
+    private final int vao;
+    private final int vbo;
+    private final int mode;
+    private int vertexCount;
+    private FloatBuffer streamBuffer;
+
+    // Instanced meshes only: one xyz offset per instance in attribute 2
+    private int instanceVbo;
+    private int maxInstances;
+    private FloatBuffer instanceBuffer;
+
+    private Mesh(int vao, int vbo, int mode, int vertexCount) {
+        this.vao = vao;
+        this.vbo = vbo;
+        this.mode = mode;
+        this.vertexCount = vertexCount;
+    }
+
+    static Mesh create(int mode, float[] interleaved, int usage) {
+        int vao = GL30.glGenVertexArrays();
+        int vbo = GL15.glGenBuffers();
+        GL30.glBindVertexArray(vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+
+        FloatBuffer data = BufferUtils.createFloatBuffer(interleaved.length);
+        data.put(interleaved).flip();
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, usage);
+
+        int stride = FLOATS_PER_VERTEX * Float.BYTES;
+        GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, stride, 0);
+        GL20.glEnableVertexAttribArray(0);
+        GL20.glVertexAttribPointer(1, 3, GL11.GL_FLOAT, false, stride, 3 * Float.BYTES);
+        GL20.glEnableVertexAttribArray(1);
+
+        GL30.glBindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        Mesh mesh = new Mesh(vao, vbo, mode, interleaved.length / FLOATS_PER_VERTEX);
+        if (usage == GL15.GL_STREAM_DRAW) {
+            mesh.streamBuffer = data;
+        }
+        return mesh;
+    }
+
+    static Mesh createInstanced(int mode, float[] interleaved, int maxInstances) {
+        Mesh mesh = create(mode, interleaved, GL15.GL_STATIC_DRAW);
+        mesh.maxInstances = maxInstances;
+        mesh.instanceBuffer = BufferUtils.createFloatBuffer(maxInstances * 3);
+        mesh.instanceVbo = GL15.glGenBuffers();
+
+        GL30.glBindVertexArray(mesh.vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, mesh.instanceVbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) maxInstances * 3 * Float.BYTES, GL15.GL_STREAM_DRAW);
+        GL20.glVertexAttribPointer(2, 3, GL11.GL_FLOAT, false, 3 * Float.BYTES, 0);
+        GL20.glEnableVertexAttribArray(2);
+        GL33.glVertexAttribDivisor(2, 1);
+
+        GL30.glBindVertexArray(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        return mesh;
+    }
+
+    void update(float[] interleaved, int vertexCount) {
+        streamBuffer.clear();
+        streamBuffer.put(interleaved, 0, vertexCount * FLOATS_PER_VERTEX).flip();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, streamBuffer);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        this.vertexCount = vertexCount;
+    }
+
+    void draw() {
+        GL30.glBindVertexArray(vao);
+        GL11.glDrawArrays(mode, 0, vertexCount);
+        GL30.glBindVertexArray(0);
+    }
+
+    // offsets holds xyz per instance; past maxInstances the rest go in further draw calls
+    void drawInstanced(float[] offsets, int count) {
+        GL30.glBindVertexArray(vao);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+        for (int first = 0; first < count; first += maxInstances) {
+            int batch = Math.min(maxInstances, count - first);
+            instanceBuffer.clear();
+            instanceBuffer.put(offsets, first * 3, batch * 3).flip();
+            // Orphan the old storage so the driver needn't wait for the previous draw
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) maxInstances * 3 * Float.BYTES, GL15.GL_STREAM_DRAW);
+            GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceBuffer);
+            GL31.glDrawArraysInstanced(mode, 0, vertexCount, batch);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL30.glBindVertexArray(0);
+    }
+
+    void delete() {
+        GL30.glDeleteVertexArrays(vao);
+        GL15.glDeleteBuffers(vbo);
+        if (instanceVbo != 0) GL15.glDeleteBuffers(instanceVbo);
+    }
+
+    static float[] cubeVertices() {
+        // Unit cube centred on the origin, two triangles per face
+        float[][] faces = {
+                // normal, then the four corners counter-clockwise
+                {0, 0, 1, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f},
+                {0, 0, -1, 0.5f, -0.5f, -0.5f, -0.5f, -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f},
+                {-1, 0, 0, -0.5f, -0.5f, -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, -0.5f},
+                {1, 0, 0, 0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f},
+                {0, 1, 0, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f},
+                {0, -1, 0, -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f}
+        };
+        int[] corners = {0, 1, 2, 0, 2, 3};
+
+        float[] out = new float[faces.length * corners.length * FLOATS_PER_VERTEX];
+        int o = 0;
+        for (float[] face : faces) {
+            for (int corner : corners) {
+                out[o++] = face[3 + corner * 3];
+                out[o++] = face[4 + corner * 3];
+                out[o++] = face[5 + corner * 3];
+                out[o++] = face[0];
+                out[o++] = face[1];
+                out[o++] = face[2];
+            }
+        }
+        return out;
+    }
+
+    static float[] sphereVertices(int slices, int stacks) {
+        // Same parametrisation as Player.renderSphere, quad strips split into triangles
+        float[] out = new float[stacks * slices * 6 * FLOATS_PER_VERTEX];
+        int o = 0;
+        for (int i = 0; i < stacks; ++i) {
+            double lat0 = Math.PI * (-0.5 + (double) (i - 1) / stacks);
+            double lat1 = Math.PI * (-0.5 + (double) i / stacks);
+
+            for (int j = 0; j < slices; ++j) {
+                double lng0 = 2 * Math.PI * (double) (j - 1) / slices;
+                double lng1 = 2 * Math.PI * (double) j / slices;
+
+                o = putSpherePoint(out, o, lat0, lng0);
+                o = putSpherePoint(out, o, lat1, lng0);
+                o = putSpherePoint(out, o, lat0, lng1);
+                o = putSpherePoint(out, o, lat0, lng1);
+                o = putSpherePoint(out, o, lat1, lng0);
+                o = putSpherePoint(out, o, lat1, lng1);
+            }
+        }
+        return out;
+    }
+
+    private static int putSpherePoint(float[] out, int o, double lat, double lng) {
+        float x = (float) (Math.cos(lng) * Math.cos(lat));
+        float y = (float) (Math.sin(lng) * Math.cos(lat));
+        float z = (float) Math.sin(lat);
+        out[o++] = x; out[o++] = y; out[o++] = z;
+        out[o++] = x; out[o++] = y; out[o++] = z;
+        return o;
+    }
+
+    static float[] laneMarkerVertices(Terrain terrain) {
+        float[] out = new float[50 * 4 * FLOATS_PER_VERTEX];
+        int o = 0;
+        for (float z = -50; z < 50; z += 2.0f) {
+            o = putVertex(out, o, -2.0f, terrain.getTerrainHeightAt(-2.0f, z) + 0.01f, z);
+            o = putVertex(out, o, -2.0f, terrain.getTerrainHeightAt(-2.0f, z + 1.0f) + 0.01f, z + 1.0f);
+            o = putVertex(out, o, 2.0f, terrain.getTerrainHeightAt(2.0f, z) + 0.01f, z);
+            o = putVertex(out, o, 2.0f, terrain.getTerrainHeightAt(2.0f, z + 1.0f) + 0.01f, z + 1.0f);
+        }
+        return out;
+    }
+
+    private static int putVertex(float[] out, int o, float x, float y, float z) {
+        out[o++] = x; out[o++] = y; out[o++] = z;
+        out[o++] = 0; out[o++] = 1; out[o++] = 0;
+        return o;
+    }
+
+    static float[] indexedVertices(float[] vertices, float[] normals, int[] indices) {
+        float[] out = new float[indices.length * FLOATS_PER_VERTEX];
+        int o = 0;
+        for (int index : indices) {
+            int v = index * 3;
+            out[o++] = vertices[v]; out[o++] = vertices[v + 1]; out[o++] = vertices[v + 2];
+            out[o++] = normals[v]; out[o++] = normals[v + 1]; out[o++] = normals[v + 2];
+        }
+        return out;
+    }
+}
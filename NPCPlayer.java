@@ -0,0 +1,67 @@
+import java.util.List;
+import java.util.Random;
+
+class NPCPlayer extends Player {
+    private static final float SLIDE_DISTANCE = 1.5f;
+
+    private float decisionTimer = 0;
+    private Random random;
+
+    public NPCPlayer(float x, float y, float z) {
+        this(x, y, z, new Random());
+    }
+
+    public NPCPlayer(float x, float y, float z, Random random) {
+        super(x, y, z);
+        this.random = random;
+        setColor(1.0f, 0.5f, 0.0f); // Orange color to distinguish NPC
+    }
+
+    public void reseed(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public void reset(float x, float y, float z) {
+        super.reset(x, y, z);
+        decisionTimer = 0;
+    }
+
+    public void updateAI(float deltaTime, List<Obstacle> obstacles, float jumpDistance, Terrain terrain) {
+        decisionTimer -= deltaTime;
+
+        // Change direction randomly
+        if (decisionTimer <= 0) {
+            int decision = random.nextInt(3); // 0 = stay, 1 = left, 2 = right
+            if (decision == 1) moveLeft(deltaTime);
+            else if (decision == 2) moveRight(deltaTime);
+            decisionTimer = 2f + random.nextFloat() * 2f;
+        }
+
+        // Deal with the nearest obstacle coming down this lane: slide under raised ones,
+        // jump low ones and sidestep anything too tall to clear
+        float apex = getJumpStrength() * getJumpStrength() / (-2 * getGravity());
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle o = obstacles.get(i);
+            ObstacleArchetype type = o.getType();
+            float ahead = o.getZ() - getZ();
+            if (type.collision == ObstacleArchetype.Collision.NONE || ahead <= 0 || ahead >= jumpDistance ||
+                    Math.abs(getX() - o.getX()) >= (WIDTH + type.hitWidth) / 2) {
+                continue;
+            }
+
+            if (type.lift > 0) {
+                if (ahead < SLIDE_DISTANCE) slide();
+            } else if (type.hitHeight < apex) {
+                jump();
+            } else if (o.getX() > 0) {
+                moveRight(deltaTime);
+            } else {
+                moveLeft(deltaTime);
+            }
+            break;
+        }
+
+        super.update(deltaTime, terrain);
+    }
+}
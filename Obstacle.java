@@ -0,0 +1,42 @@
+class Obstacle {
+    private ObstacleArchetype type;
+    private float x, y, z;
+    private float laneX;   // where it spawned; sway swings around this
+    private float phase;   // sway: start of the swing, in radians
+
+    public Obstacle(ObstacleArchetype type, float x, float y, float z) {
+        reset(type, x, y, z, 0);
+    }
+
+    // Lets the world recycle obstacles instead of allocating one per spawn
+    public void reset(ObstacleArchetype type, float x, float y, float z, float phase) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.laneX = x;
+        this.phase = phase;
+    }
+
+    public ObstacleArchetype getType() { return type; }
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getZ() { return z; }
+    public float getLaneX() { return laneX; }
+    public float getPhase() { return phase; }
+    public float getWidth() { return type.width; }
+    public float getHeight() { return type.height; }
+    public float getDepth() { return type.depth; }
+
+    public void setX(float x) {
+        this.x = x;
+    }
+
+    public void setY(float y) {
+        this.y = y;
+    }
+
+    public void update(float distance) {
+        z -= distance; // Move toward player
+    }
+}
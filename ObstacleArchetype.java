@@ -0,0 +1,182 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// One kind of obstacle, shared by every instance of it. Loaded from a data file so new kinds
+// need no code: the world moves, collides and draws obstacles a whole archetype at a time
+class ObstacleArchetype {
+    static final String DEFAULT_FILE = "obstacles.txt";
+
+    enum Shape {
+        CUBE,
+        SPHERE
+    }
+
+    enum Collision {
+        SOLID,
+        NONE    // scenery
+    }
+
+    enum Motion {
+        STATIC,  // rides the track toward the player
+        SWAY,    // also swings across the lanes
+        CHARGE   // comes in faster than the track
+    }
+
+    int index;
+    String name;
+    Shape shape = Shape.CUBE;
+    float width = 0.8f, height = 1.0f, depth = 0.8f;
+    float lift = 0;                 // bottom of the obstacle above the ground
+    float hitWidth = Float.NaN, hitHeight = Float.NaN, hitDepth = Float.NaN; // collision volume, defaults to the size
+    Collision collision = Collision.SOLID;
+    int lanes = 1;
+    Motion motion = Motion.STATIC;
+    float amplitude = 2.0f;         // sway: distance either side of the spawn lane
+    float frequency = 0.25f;        // sway: swings per second
+    float speed = 1.0f;             // charge: multiple of the game speed
+    float[] color = {1.0f, 0.0f, 0.0f};
+    float weight = 1;               // relative chance of being spawned
+
+    // The original red box, used when there is no data file. Only its lower part collides
+    // so a well-timed jump clears it
+    static List<ObstacleArchetype> defaults() {
+        ObstacleArchetype box = new ObstacleArchetype();
+        box.name = "box";
+        box.hitWidth = 0.8f;
+        box.hitHeight = 0.6f;
+        box.hitDepth = 0.8f;
+        box.finish(0);
+        return Collections.singletonList(box);
+    }
+
+    // A missing default file falls back to the built-in box; a missing named file is an error
+    static List<ObstacleArchetype> load(String file) {
+        String path = file != null ? file : DEFAULT_FILE;
+        if (file == null && !new File(path).isFile()) {
+            return defaults();
+        }
+
+        List<ObstacleArchetype> archetypes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) line = line.substring(0, comment);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                try {
+                    ObstacleArchetype archetype = parse(line);
+                    archetype.finish(archetypes.size());
+                    archetypes.add(archetype);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read obstacle archetypes from " + path + ": " + e.getMessage(), e);
+        }
+
+        if (archetypes.isEmpty()) {
+            throw new IllegalArgumentException(path + " defines no obstacle archetypes");
+        }
+        return archetypes;
+    }
+
+    // "name key=value key=value ..."
+    static ObstacleArchetype parse(String line) {
+        String[] tokens = line.split("\\s+");
+        ObstacleArchetype archetype = new ObstacleArchetype();
+        archetype.name = tokens[0];
+
+        for (int i = 1; i < tokens.length; i++) {
+            String[] setting = tokens[i].split("=", 2);
+            if (setting.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + tokens[i]);
+            }
+            String value = setting[1];
+            switch (setting[0]) {
+                case "shape":
+                    archetype.shape = Shape.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "size": {
+                    float[] size = floats(value, 3);
+                    archetype.width = size[0];
+                    archetype.height = size[1];
+                    archetype.depth = size[2];
+                    break;
+                }
+                case "hitbox": {
+                    float[] size = floats(value, 3);
+                    archetype.hitWidth = size[0];
+                    archetype.hitHeight = size[1];
+                    archetype.hitDepth = size[2];
+                    break;
+                }
+                case "lift":
+                    archetype.lift = floats(value, 1)[0];
+                    break;
+                case "collision":
+                    archetype.collision = Collision.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "lanes":
+                    archetype.lanes = Integer.parseInt(value);
+                    if (archetype.lanes < 1 || archetype.lanes > 3) {
+                        throw new IllegalArgumentException("lanes must be 1, 2 or 3");
+                    }
+                    break;
+                case "motion":
+                    archetype.motion = Motion.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "amplitude":
+                    archetype.amplitude = floats(value, 1)[0];
+                    break;
+                case "frequency":
+                    archetype.frequency = floats(value, 1)[0];
+                    break;
+                case "speed":
+                    archetype.speed = floats(value, 1)[0];
+                    break;
+                case "color":
+                    archetype.color = floats(value, 3);
+                    break;
+                case "weight":
+                    archetype.weight = floats(value, 1)[0];
+                    if (archetype.weight < 0) throw new IllegalArgumentException("weight can't be negative");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown obstacle setting: " + setting[0]);
+            }
+        }
+        return archetype;
+    }
+
+    private static float[] floats(String value, int count) {
+        String[] parts = value.split(",");
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " comma-separated numbers, got " + value);
+        }
+        float[] result = new float[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = Float.parseFloat(parts[i]);
+        }
+        return result;
+    }
+
+    private void finish(int index) {
+        this.index = index;
+        if (Float.isNaN(hitWidth)) {
+            hitWidth = width;
+            hitHeight = height;
+            hitDepth = depth;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+class OffscreenTarget {
+    private final int width;
+    private final int height;
+    private final int framebuffer;
+    private final int colorBuffer;
+    private final int depthBuffer;
+
+    OffscreenTarget(int width, int height) {
+        if (!GL.getCapabilities().OpenGL30) {
+            throw new IllegalStateException("Offscreen rendering needs framebuffer objects (OpenGL 3.0)");
+        }
+        this.width = width;
+        this.height = height;
+
+        framebuffer = GL30.glGenFramebuffers();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+
+        colorBuffer = GL30.glGenRenderbuffers();
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, colorBuffer);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, width, height);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, colorBuffer);
+
+        depthBuffer = GL30.glGenRenderbuffers();
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, depthBuffer);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH24_STENCIL8, width, height);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, depthBuffer);
+
+        int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+        if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+            delete();
+            throw new IllegalStateException("Offscreen framebuffer incomplete: 0x" + Integer.toHexString(status));
+        }
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+    }
+
+    int getWidth() { return width; }
+    int getHeight() { return height; }
+    int getFramebuffer() { return framebuffer; }
+
+    void bind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+        GL11.glViewport(0, 0, width, height);
+    }
+
+    void delete() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        GL30.glDeleteRenderbuffers(colorBuffer);
+        GL30.glDeleteRenderbuffers(depthBuffer);
+        GL30.glDeleteFramebuffers(framebuffer);
+    }
+}
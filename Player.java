@@ -0,0 +1,265 @@
+import org.lwjgl.opengl.GL11;
+
+import java.nio.ByteBuffer;
+
+class Player {
+    // Collision volume: feet at y, centred on x and z
+    static final float WIDTH = 0.4f;
+    static final float DEPTH = 0.2f;
+    static final float HEIGHT = 1.8f;
+    static final float SLIDE_HEIGHT = 0.9f;
+    private static final float SLIDE_TIME = 0.8f;
+    static final int STATE_SIZE = 25; // bytes written by writeState
+
+    private float x, y, z;
+    private float targetX = 0;
+    private float jumpVelocity = 0;
+    private boolean isJumping = false;
+    private float gravity = -9.8f;
+    private float jumpStrength = 5.0f;
+    private float timeSinceLanding = Float.MAX_VALUE;
+    private float slideTimer = 0;
+
+    private float laneWidth;
+    private float moveSpeed;
+    private final float[] color = {0.0f, 0.0f, 1.0f}; // Blue color
+
+
+
+    public Player(float x, float y, float z) {
+        reset(x, y, z);
+        this.laneWidth = 10000000.0f;  // Narrower lanes
+        this.moveSpeed = 16.0f;  // Faster movement
+    }
+
+    public void reset(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = 10.0f;  // Start further back
+        jumpVelocity = 0;
+        isJumping = false;
+        timeSinceLanding = Float.MAX_VALUE;
+        slideTimer = 0;
+    }
+
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getZ() { return z; }
+    public float[] getColor() { return color; }
+    public float getTimeSinceLanding() { return timeSinceLanding; }
+    public float getJumpStrength() { return jumpStrength; }
+    public float getGravity() { return gravity; }
+    public boolean isAirborne() { return isJumping; }
+    public boolean isSliding() { return slideTimer > 0; }
+
+    // Motion state only; the look and tuning are set up front
+    void writeState(ByteBuffer out) {
+        out.putFloat(x).putFloat(y).putFloat(z).putFloat(jumpVelocity);
+        out.put((byte) (isJumping ? 1 : 0)).putFloat(timeSinceLanding).putFloat(slideTimer);
+    }
+
+    void readState(ByteBuffer in) {
+        x = in.getFloat();
+        y = in.getFloat();
+        z = in.getFloat();
+        jumpVelocity = in.getFloat();
+        isJumping = in.get() != 0;
+        timeSinceLanding = in.getFloat();
+        slideTimer = in.getFloat();
+    }
+
+    void copyState(Player other) {
+        x = other.x;
+        y = other.y;
+        z = other.z;
+        jumpVelocity = other.jumpVelocity;
+        isJumping = other.isJumping;
+        timeSinceLanding = other.timeSinceLanding;
+        slideTimer = other.slideTimer;
+    }
+
+    public float getCollisionHeight() {
+        return isSliding() ? SLIDE_HEIGHT : HEIGHT;
+    }
+
+    public void setJumpStrength(float jumpStrength) {
+        this.jumpStrength = jumpStrength;
+    }
+
+    protected void setColor(float r, float g, float b) {
+        color[0] = r;
+        color[1] = g;
+        color[2] = b;
+    }
+
+    public void moveLeft(float deltaTime) {
+        x += moveSpeed * deltaTime; // Move left when left key pressed
+        x = Math.max(x, -laneWidth); // Limit to left boundary
+    }
+
+    public void moveRight(float deltaTime) {
+        x -= moveSpeed * deltaTime; // Move right when right key pressed
+        x = Math.min(x, laneWidth); // Limit to right boundary
+    }
+    public void jump() {
+        if (!isJumping) {
+            jumpVelocity = jumpStrength;
+            isJumping = true;
+            slideTimer = 0;
+        }
+    }
+
+    public void slide() {
+        if (!isJumping && slideTimer <= 0) {
+            slideTimer = SLIDE_TIME;
+        }
+    }
+
+    public void update(float deltaTime, Terrain terrain) {
+        // Smooth horizontal movement
+        x += (targetX - x) * 10f * deltaTime;
+
+        x = Math.max(-laneWidth, Math.min(laneWidth, x));
+        float ground = terrain.getTerrainHeightAt(x, z);
+
+        // Jump physics
+        if (isJumping) {
+            y += jumpVelocity * deltaTime;
+            jumpVelocity += gravity * deltaTime;
+
+            if (y <= ground) {
+                y = ground;
+                timeSinceLanding = 0;
+                isJumping = false;
+                jumpVelocity = 0;
+            }
+        } else {
+            y = ground; // Follow the slope
+            timeSinceLanding += deltaTime;
+        }
+        slideTimer = Math.max(0, slideTimer - deltaTime);
+    }
+
+    public void render(Terrain terrain) {
+        float playerHeight = getCollisionHeight();
+        float base = Math.max(y, terrain.getTerrainHeightAt(x, z));
+
+        GL11.glPushMatrix();
+        GL11.glTranslatef(x, base + playerHeight/2, z);
+        GL11.glScalef(1, playerHeight / HEIGHT, 1); // Crouched while sliding
+
+        // Render player (simple character)
+        GL11.glColor3f(color[0], color[1], color[2]);
+        GL11.glShadeModel(GL11.GL_SMOOTH);
+
+        // Head
+        GL11.glPushMatrix();
+        GL11.glTranslatef(0, 0.3f, 0);
+        GL11.glScalef(0.3f, 0.3f, 0.3f);
+        renderSphere();
+        GL11.glPopMatrix();
+
+        // Body
+        GL11.glPushMatrix();
+        GL11.glScalef(0.4f, 0.6f, 0.2f);
+        renderCube();
+        GL11.glPopMatrix();
+
+        // Arms
+        GL11.glPushMatrix();
+        GL11.glTranslatef(0.3f, 0, 0);
+        GL11.glScalef(0.2f, 0.5f, 0.1f);
+        renderCube();
+        GL11.glPopMatrix();
+
+        GL11.glPushMatrix();
+        GL11.glTranslatef(-0.3f, 0, 0);
+        GL11.glScalef(0.2f, 0.5f, 0.1f);
+        renderCube();
+        GL11.glPopMatrix();
+
+        // Legs
+        GL11.glPushMatrix();
+        GL11.glTranslatef(0.15f, -0.5f, 0);
+        GL11.glScalef(0.2f, 0.5f, 0.1f);
+        renderCube();
+        GL11.glPopMatrix();
+
+        GL11.glPushMatrix();
+        GL11.glTranslatef(-0.15f, -0.5f, 0);
+        GL11.glScalef(0.2f, 0.5f, 0.1f);
+        renderCube();
+        GL11.glPopMatrix();
+
+        GL11.glPopMatrix();
+    }
+
+    private void renderCube() {
+        GL11.glBegin(GL11.GL_QUADS);
+        // Front face
+        GL11.glNormal3f(0, 0, 1);
+        GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
+        GL11.glVertex3f(0.5f, -0.5f, 0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, 0.5f);
+        GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
+
+        // Back face
+        GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, -0.5f);
+        GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
+
+        // Left face
+        GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
+        GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
+        GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
+
+        // Right face
+        GL11.glVertex3f(0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, -0.5f, 0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, 0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, -0.5f);
+
+        // Top face
+        GL11.glVertex3f(-0.5f, 0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, 0.5f, 0.5f);
+        GL11.glVertex3f(-0.5f, 0.5f, 0.5f);
+
+        // Bottom face
+        GL11.glVertex3f(-0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, -0.5f, -0.5f);
+        GL11.glVertex3f(0.5f, -0.5f, 0.5f);
+        GL11.glVertex3f(-0.5f, -0.5f, 0.5f);
+        GL11.glEnd();
+    }
+
+    private void renderSphere() {
+        int slices = 16;
+        int stacks = 16;
+
+        for (int i = 0; i < stacks; ++i) {
+            double lat0 = Math.PI * (-0.5 + (double) (i - 1) / stacks);
+            double z0 = Math.sin(lat0);
+            double zr0 = Math.cos(lat0);
+
+            double lat1 = Math.PI * (-0.5 + (double) i / stacks);
+            double z1 = Math.sin(lat1);
+            double zr1 = Math.cos(lat1);
+
+            GL11.glBegin(GL11.GL_QUAD_STRIP);
+            for (int j = 0; j <= slices; ++j) {
+                double lng = 2 * Math.PI * (double) (j - 1) / slices;
+                double x = Math.cos(lng);
+                double y = Math.sin(lng);
+
+                GL11.glNormal3d(x * zr0, y * zr0, z0);
+                GL11.glVertex3d(x * zr0, y * zr0, z0);
+                GL11.glNormal3d(x * zr1, y * zr1, z1);
+                GL11.glVertex3d(x * zr1, y * zr1, z1);
+            }
+            GL11.glEnd();
+        }
+    }
+}
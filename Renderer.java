@@ -0,0 +1,24 @@
+import java.util.List;
+
+interface Renderer {
+    void init(int width, int height);
+
+    void beginFrame();
+
+    void setCamera(float eyeX, float eyeY, float eyeZ,
+                   float centerX, float centerY, float centerZ,
+                   float upX, float upY, float upZ);
+
+    void drawTerrain(Terrain terrain);
+
+    void drawRunner(Player runner, Terrain terrain);
+
+    // All obstacles of one archetype in a single batch
+    void drawObstacles(ObstacleArchetype type, List<Obstacle> obstacles);
+
+    void drawText(float x, float y, CharSequence text);
+
+    void cleanup();
+
+    String getName();
+}
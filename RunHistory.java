@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Every finished run, kept in an append-only log of fixed-size checksummed records. A small index
+// file caches the totals and the top scores, so startup reads the index plus whatever was
+// appended after it was last written rather than the whole history. Appends, index updates and
+// compaction all run on a background thread; the game only hands over a result. One process at
+// a time: a lock on FILE.lock, which compaction never replaces, is held for as long as it's open
+class RunHistory {
+    static final int TOP_N = 10;
+
+    // Log header: magic, version, record size, reserved, generation, then the totals of runs
+    // folded away by compaction (count, score sum, survival sum)
+    private static final int LOG_MAGIC = 0x4C4E5552; // "RUNL" little-endian
+    private static final int INDEX_MAGIC = 0x58444952; // "RIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+
+    // Record: magic, timestamp (ms), score, survival (s), death cause, reserved, CRC32 of the first 28 bytes
+    private static final int RECORD_MAGIC = 0x314E5552; // "RUN1"
+    private static final int RECORD_SIZE = 32;
+    private static final int TOP_ENTRY_SIZE = 20;
+
+    // Once the log holds this many runs, compaction keeps the latest KEEP_RECENT plus the
+    // leaderboard and folds the rest into the header totals
+    private static final int COMPACT_THRESHOLD = 20_000;
+    private static final int KEEP_RECENT = 10_000;
+
+    static class Run {
+        final long timestamp;
+        final int score;
+        final float survival;
+        final int cause;
+
+        Run(long timestamp, int score, float survival, int cause) {
+            this.timestamp = timestamp;
+            this.score = score;
+            this.survival = survival;
+            this.cause = cause;
+        }
+
+        boolean beats(Run other) {
+            return score != other.score ? score > other.score : survival > other.survival;
+        }
+    }
+
+    // Immutable; replaced as a whole so the game thread can read it without locking
+    static class Summary {
+        final long runs;
+        final long totalScore;
+        final double totalSurvival;
+        final Run[] top;
+
+        Summary(long runs, long totalScore, double totalSurvival, Run[] top) {
+            this.runs = runs;
+            this.totalScore = totalScore;
+            this.totalSurvival = totalSurvival;
+            this.top = top;
+        }
+
+        int getBestScore() {
+            return top.length > 0 ? top[0].score : 0;
+        }
+    }
+
+    private final Path logFile;
+    // File locks belong to the whole process, and closing any channel on the lock file drops them,
+    // so histories open in this JVM are tracked here instead of by opening the file a second time
+    private static final Set<Path> LOCKED = ConcurrentHashMap.newKeySet();
+
+    private final Path indexFile;
+    private final Path lockFile;
+    private final FileChannel lock;
+    private FileChannel log;
+    private final ExecutorService writer;
+
+    // Owned by the writer thread once open() returns
+    private long generation;
+    private long foldedRuns;
+    private long foldedScore;
+    private double foldedSurvival;
+    private long logRuns;
+    private long logScore;
+    private double logSurvival;
+    private final List<Run> top = new ArrayList<>(TOP_N + 1);
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    private volatile Summary summary;
+
+    private RunHistory(Path logFile) throws IOException {
+        this.logFile = logFile;
+        this.indexFile = Paths.get(logFile + ".idx");
+        // Taken before anything is read, so no other game can be mid-append when the tail is checked
+        lockFile = Paths.get(logFile + ".lock").toAbsolutePath().normalize();
+        if (!LOCKED.add(lockFile)) {
+            throw new IOException(logFile + " is in use by another game; give this one its own with --history=FILE");
+        }
+        try {
+            lock = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            LOCKED.remove(lockFile);
+            throw e;
+        }
+        try {
+            if (lock.tryLock() == null) {
+                throw new IOException(logFile + " is in use by another game; give this one its own with --history=FILE");
+            }
+            if (!Files.exists(logFile)) {
+                writeHeader(logFile, 0, 0, 0, 0);
+            }
+            log = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            unlock();
+            throw e;
+        }
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "run-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static RunHistory open(Path logFile) throws IOException {
+        RunHistory history = new RunHistory(logFile);
+        try {
+            history.load();
+        } catch (IOException | RuntimeException e) {
+            history.log.close();
+            history.unlock();
+            history.writer.shutdownNow();
+            throw e;
+        }
+        return history;
+    }
+
+    Summary getSummary() {
+        return summary;
+    }
+
+    // Never blocks the caller: the write, the fsync and any compaction happen on the writer thread
+    void submit(Run run) {
+        writer.execute(() -> {
+            try {
+                append(run);
+                if (logRuns >= COMPACT_THRESHOLD) {
+                    compact();
+                }
+                writeIndex();
+            } catch (IOException e) {
+                System.err.println("Failed to record run: " + e.getMessage());
+            }
+        });
+    }
+
+    // Waits for queued runs to be written; the channel is closed by the writer after the last of them
+    void close() {
+        writer.execute(() -> {
+            try {
+                log.close();
+                unlock();
+            } catch (IOException e) {
+                System.err.println("Failed to close run history: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Run history still writing at exit; the last runs may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void unlock() throws IOException {
+        try {
+            lock.close(); // releases the lock
+        } finally {
+            LOCKED.remove(lockFile);
+        }
+    }
+
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(log, header, 0);
+        if (header.getInt(0) != LOG_MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Not a run history file (or an unsupported version): " + logFile);
+        }
+        generation = header.getLong(16);
+        foldedRuns = header.getLong(24);
+        foldedScore = header.getLong(32);
+        foldedSurvival = header.getDouble(40);
+
+        // The index covers the log up to some offset; only records after it need reading
+        long covered = readIndex();
+        if (covered < 0) {
+            top.clear();
+            logRuns = 0;
+            logScore = 0;
+            logSurvival = 0;
+            covered = HEADER_SIZE;
+        }
+        long end = scan(covered);
+        if (end < log.size()) {
+            // A torn append from a crash: drop it so new records line up again
+            System.err.println("Run history: discarding " + (log.size() - end) + " damaged bytes at the end of " + logFile);
+            log.truncate(end);
+        }
+        publish();
+        if (end != covered) {
+            writeIndex();
+        }
+    }
+
+    // Reads records from offset until the end or the first damaged one; returns where it stopped
+    private long scan(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        long size = log.size();
+        while (offset + RECORD_SIZE <= size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (size - offset) / RECORD_SIZE * RECORD_SIZE));
+            readFully(log, buffer, offset);
+            for (int at = 0; at < buffer.limit(); at += RECORD_SIZE) {
+                Run run = decode(buffer, at);
+                if (run == null) return offset + at;
+                count(run);
+            }
+            offset += buffer.limit();
+        }
+        return offset;
+    }
+
+    private void append(Run run) throws IOException {
+        record.clear();
+        record.putInt(RECORD_MAGIC).putLong(run.timestamp).putInt(run.score).putFloat(run.survival)
+                .putInt(run.cause).putInt(0);
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue()).flip();
+
+        long offset = log.size();
+        while (record.hasRemaining()) {
+            offset += log.write(record, offset);
+        }
+        log.force(false); // on disk before it counts
+        count(run);
+        publish();
+    }
+
+    private void count(Run run) {
+        logRuns++;
+        logScore += run.score;
+        logSurvival += run.survival;
+
+        int position = top.size();
+        while (position > 0 && run.beats(top.get(position - 1))) position--;
+        if (position < TOP_N) {
+            top.add(position, run);
+            if (top.size() > TOP_N) top.remove(TOP_N);
+        }
+    }
+
+    private void publish() {
+        summary = new Summary(foldedRuns + logRuns, foldedScore + logScore, foldedSurvival + logSurvival,
+                top.toArray(new Run[0]));
+    }
+
+    private Run decode(ByteBuffer buffer, int at) {
+        if (buffer.getInt(at) != RECORD_MAGIC) return null;
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + at, RECORD_SIZE - 4);
+        if ((int) crc.getValue() != buffer.getInt(at + RECORD_SIZE - 4)) return null;
+        return new Run(buffer.getLong(at + 4), buffer.getInt(at + 12), buffer.getFloat(at + 16), buffer.getInt(at + 20));
+    }
+
+    // Rewrites the log with the recent runs and the leaderboard, folding everything else into the
+    // header totals. The new log is complete and synced before it replaces the old one
+    private void compact() throws IOException {
+        long records = (log.size() - HEADER_SIZE) / RECORD_SIZE;
+        long firstKept = records - KEEP_RECENT;
+
+        Path compacted = Paths.get(logFile + ".compact");
+        long newFoldedRuns = foldedRuns;
+        long newFoldedScore = foldedScore;
+        double newFoldedSurvival = foldedSurvival;
+        long keptRuns = 0;
+        long keptScore = 0;
+        double keptSurvival = 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer keep = ByteBuffer.allocate(buffer.capacity());
+        writeHeader(compacted, generation + 1, 0, 0, 0);
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long offset = HEADER_SIZE;
+            long index = 0;
+            while (index < records) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (records - index) * RECORD_SIZE));
+                readFully(log, buffer, offset);
+
+                keep.clear();
+                for (int at = 0; at < buffer.limit(); at += RECORD_SIZE, index++) {
+                    Run run = decode(buffer, at);
+                    if (run == null) continue;
+                    if (index >= firstKept || isTop(run)) {
+                        keep.put(buffer.array(), at, RECORD_SIZE);
+                        keptRuns++;
+                        keptScore += run.score;
+                        keptSurvival += run.survival;
+                    } else {
+                        newFoldedRuns++;
+                        newFoldedScore += run.score;
+                        newFoldedSurvival += run.survival;
+                    }
+                }
+                keep.flip();
+                while (keep.hasRemaining()) out.write(keep);
+                offset += buffer.limit();
+            }
+            out.force(true);
+        }
+        rewriteHeaderTotals(compacted, newFoldedRuns, newFoldedScore, newFoldedSurvival);
+
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The old channel still points at the replaced file
+        log.close();
+        log = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        generation++;
+        foldedRuns = newFoldedRuns;
+        foldedScore = newFoldedScore;
+        foldedSurvival = newFoldedSurvival;
+        logRuns = keptRuns;
+        logScore = keptScore;
+        logSurvival = keptSurvival;
+        publish();
+    }
+
+    private boolean isTop(Run run) {
+        for (int i = 0; i < top.size(); i++) {
+            Run leader = top.get(i);
+            if (leader.timestamp == run.timestamp && leader.score == run.score && leader.survival == run.survival) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeHeader(Path file, long generation, long runs, long score, double survival) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOG_MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0)
+                .putLong(generation).putLong(runs).putLong(score).putDouble(survival).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            channel.force(true);
+        }
+    }
+
+    private static void rewriteHeaderTotals(Path file, long runs, long score, double survival) throws IOException {
+        ByteBuffer totals = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        totals.putLong(runs).putLong(score).putDouble(survival).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            long offset = 24;
+            while (totals.hasRemaining()) offset += channel.write(totals, offset);
+            channel.force(true);
+        }
+    }
+
+    // Returns the log offset the index covers, or -1 if it's missing, damaged or stale
+    private long readIndex() throws IOException {
+        if (!Files.exists(indexFile)) return -1;
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+        int fixed = 52;
+        if (index.limit() < fixed + 4 || index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) return -1;
+
+        int count = index.getInt(48);
+        if (count < 0 || count > TOP_N || index.limit() != fixed + count * TOP_ENTRY_SIZE + 4) return -1;
+        crc.reset();
+        crc.update(index.array(), 0, index.limit() - 4);
+        if ((int) crc.getValue() != index.getInt(index.limit() - 4)) return -1;
+
+        long covered = index.getLong(16);
+        if (index.getLong(8) != generation || covered < HEADER_SIZE || covered > log.size()
+                || (covered - HEADER_SIZE) % RECORD_SIZE != 0) {
+            return -1;
+        }
+
+        logRuns = index.getLong(24);
+        logScore = index.getLong(32);
+        logSurvival = index.getDouble(40);
+        top.clear();
+        for (int i = 0; i < count; i++) {
+            int at = fixed + i * TOP_ENTRY_SIZE;
+            top.add(new Run(index.getLong(at), index.getInt(at + 8), index.getFloat(at + 12), index.getInt(at + 16)));
+        }
+        return covered;
+    }
+
+    // Written to a temporary file and renamed over the old one, so a crash leaves one or the other
+    private void writeIndex() throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(52 + top.size() * TOP_ENTRY_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(INDEX_MAGIC).putInt(VERSION).putLong(generation).putLong(log.size())
+                .putLong(logRuns).putLong(logScore).putDouble(logSurvival).putInt(top.size());
+        for (Run run : top) {
+            index.putLong(run.timestamp).putInt(run.score).putFloat(run.survival).putInt(run.cause);
+        }
+        crc.reset();
+        crc.update(index.array(), 0, index.position());
+        index.putInt((int) crc.getValue());
+
+        Path temporary = Paths.get(indexFile + ".tmp");
+        Files.write(temporary, index.array());
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            offset += read;
+        }
+    }
+
+    // Prints the leaderboard: java RunnerGame --leaderboard [--history=FILE]
+    static void print(Path logFile) throws IOException {
+        RunHistory history = open(logFile);
+        try {
+            Summary summary = history.getSummary();
+            System.out.println(String.format(java.util.Locale.ROOT, "%d runs, average score %.1f, average survival %.1f s",
+                    summary.runs, summary.runs > 0 ? (double) summary.totalScore / summary.runs : 0.0,
+                    summary.runs > 0 ? summary.totalSurvival / summary.runs : 0.0));
+            GameWorld.DeathCause[] causes = GameWorld.DeathCause.values();
+            for (int i = 0; i < summary.top.length; i++) {
+                Run run = summary.top[i];
+                System.out.println(String.format(java.util.Locale.ROOT, "%2d. %5d  %7.1f s  %-10s %tF %<tR",
+                        i + 1, run.score, run.survival,
+                        run.cause >= 0 && run.cause < causes.length ? causes[run.cause] : "?", run.timestamp));
+            }
+        } finally {
+            history.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+class ShaderRenderer implements Renderer {
+    private static final String VERTEX_SHADER =
+            "#version 330 core\n" +
+            "layout(location = 0) in vec3 aPosition;\n" +
+            "layout(location = 1) in vec3 aNormal;\n" +
+            "layout(location = 2) in vec3 aOffset;\n" + // per instance; (0,0,0) for meshes without it
+            "uniform mat4 uProjection;\n" +
+            "uniform mat4 uView;\n" +
+            "uniform mat4 uModel;\n" +
+            "out vec3 vEyePosition;\n" +
+            "out vec3 vEyeNormal;\n" +
+            "void main() {\n" +
+            "    mat4 modelView = uView * uModel;\n" +
+            "    vec4 eyePosition = uView * (uModel * vec4(aPosition, 1.0) + vec4(aOffset, 0.0));\n" +
+            "    vEyePosition = eyePosition.xyz;\n" +
+            "    vEyeNormal = transpose(inverse(mat3(modelView))) * aNormal;\n" +
+            "    gl_Position = uProjection * eyePosition;\n" +
+            "}\n";
+
+    // Same single point light as the fixed-function path: light in eye space,
+    // color material driving ambient and diffuse, default 0.2 global ambient
+    private static final String FRAGMENT_SHADER =
+            "#version 330 core\n" +
+            "in vec3 vEyePosition;\n" +
+            "in vec3 vEyeNormal;\n" +
+            "uniform vec3 uColor;\n" +
+            "uniform vec3 uLightPosition;\n" +
+            "uniform vec3 uLightAmbient;\n" +
+            "uniform vec3 uLightDiffuse;\n" +
+            "uniform vec3 uGlobalAmbient;\n" +
+            "uniform bool uLit;\n" +
+            "out vec4 fragColor;\n" +
+            "void main() {\n" +
+            "    if (!uLit) {\n" +
+            "        fragColor = vec4(uColor, 1.0);\n" +
+            "        return;\n" +
+            "    }\n" +
+            "    vec3 n = normalize(vEyeNormal);\n" +
+            "    vec3 l = normalize(uLightPosition - vEyePosition);\n" +
+            "    float diffuse = max(dot(n, l), 0.0);\n" +
+            "    vec3 light = uGlobalAmbient + uLightAmbient + uLightDiffuse * diffuse;\n" +
+            "    fragColor = vec4(clamp(uColor * light, 0.0, 1.0), 1.0);\n" +
+            "}\n";
+
+    private static final int MAX_HUD_CHARS = 64;
+    private static final int MAX_INSTANCES = 256; // per draw call; more are drawn in further calls
+
+    private int width;
+    private int height;
+
+    private int program;
+    private int uProjection;
+    private int uView;
+    private int uModel;
+    private int uColor;
+    private int uLit;
+
+    private Mesh cube;
+    private Mesh sphere;
+    private Mesh terrainMesh;
+    private Mesh laneMarkers;
+    private Mesh hudLines;
+    private Mesh obstacleCubes;
+    private Mesh obstacleSpheres;
+    private float[] instanceOffsets = new float[64 * 3];
+    private Terrain meshedTerrain;
+
+    private final float[] projection = new float[16];
+    private final float[] hudProjection = new float[16];
+    private final float[] view = new float[16];
+    private final float[] model = new float[16];
+    private final float[] runnerModel = new float[16];
+    private final float[] partModel = new float[16];
+    private final float[] identity = new float[16];
+    private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+    private final float[] hudVertices = new float[MAX_HUD_CHARS * 8 * 2 * Mesh.FLOATS_PER_VERTEX];
+
+    public void init(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        program = createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        uProjection = GL20.glGetUniformLocation(program, "uProjection");
+        uView = GL20.glGetUniformLocation(program, "uView");
+        uModel = GL20.glGetUniformLocation(program, "uModel");
+        uColor = GL20.glGetUniformLocation(program, "uColor");
+        uLit = GL20.glGetUniformLocation(program, "uLit");
+
+        GL20.glUseProgram(program);
+        GL20.glUniform3f(GL20.glGetUniformLocation(program, "uLightPosition"), 0.0f, 10.0f, 10.0f);
+        GL20.glUniform3f(GL20.glGetUniformLocation(program, "uLightAmbient"), 0.4f, 0.4f, 0.4f);
+        GL20.glUniform3f(GL20.glGetUniformLocation(program, "uLightDiffuse"), 1.0f, 1.0f, 1.0f);
+        GL20.glUniform3f(GL20.glGetUniformLocation(program, "uGlobalAmbient"), 0.2f, 0.2f, 0.2f);
+
+        Mat4.perspective(projection, 45.0f, (float) width / height, 0.1f, 100.0f);
+        Mat4.ortho(hudProjection, 0, width, 0, height, -1, 1);
+        Mat4.identity(view);
+        Mat4.identity(identity);
+
+        cube = Mesh.create(GL11.GL_TRIANGLES, Mesh.cubeVertices(), GL15.GL_STATIC_DRAW);
+        sphere = Mesh.create(GL11.GL_TRIANGLES, Mesh.sphereVertices(16, 16), GL15.GL_STATIC_DRAW);
+        hudLines = Mesh.create(GL11.GL_LINES, hudVertices, GL15.GL_STREAM_DRAW);
+        obstacleCubes = Mesh.createInstanced(GL11.GL_TRIANGLES, Mesh.cubeVertices(), MAX_INSTANCES);
+        obstacleSpheres = Mesh.createInstanced(GL11.GL_TRIANGLES, Mesh.sphereVertices(16, 16), MAX_INSTANCES);
+
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+        GL11.glDepthFunc(GL11.GL_LEQUAL);
+        // The viewport is left at the framebuffer's own size; width and height are the window's,
+        // which is smaller on HiDPI displays, and only set the aspect ratio and HUD coordinates
+    }
+
+    public void beginFrame() {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        GL20.glUseProgram(program);
+        upload(uProjection, projection);
+        upload(uView, view);
+    }
+
+    public void setCamera(float eyeX, float eyeY, float eyeZ,
+                          float centerX, float centerY, float centerZ,
+                          float upX, float upY, float upZ) {
+        Mat4.lookAt(view, eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ);
+        upload(uView, view);
+    }
+
+    public void drawTerrain(Terrain terrain) {
+        if (terrain != meshedTerrain) {
+            if (terrainMesh != null) terrainMesh.delete();
+            if (laneMarkers != null) laneMarkers.delete();
+            terrainMesh = Mesh.create(GL11.GL_TRIANGLES, Mesh.indexedVertices(
+                    terrain.getVertices(), terrain.getNormals(), terrain.getIndices()), GL15.GL_STATIC_DRAW);
+            laneMarkers = Mesh.create(GL11.GL_LINES, Mesh.laneMarkerVertices(terrain), GL15.GL_STATIC_DRAW);
+            meshedTerrain = terrain;
+        }
+
+        GL20.glUniform1i(uLit, 1);
+        upload(uModel, identity);
+        GL20.glUniform3f(uColor, 0.2f, 0.6f, 0.3f); // Grass green color
+        terrainMesh.draw();
+
+        GL20.glUniform3f(uColor, 1.0f, 1.0f, 1.0f);
+        laneMarkers.draw();
+    }
+
+    public void drawRunner(Player runner, Terrain terrain) {
+        float playerHeight = runner.getCollisionHeight();
+        float[] color = runner.getColor();
+
+        GL20.glUniform1i(uLit, 1);
+        GL20.glUniform3f(uColor, color[0], color[1], color[2]);
+        float base = Math.max(runner.getY(), terrain.getTerrainHeightAt(runner.getX(), runner.getZ()));
+        // Crouched while sliding, as in the legacy path
+        Mat4.translationScale(runnerModel, runner.getX(), base + playerHeight / 2, runner.getZ(),
+                1, playerHeight / Player.HEIGHT, 1);
+
+        drawPart(sphere, 0, 0.3f, 0, 0.3f, 0.3f, 0.3f);        // Head
+        drawPart(cube, 0, 0, 0, 0.4f, 0.6f, 0.2f);             // Body
+        drawPart(cube, 0.3f, 0, 0, 0.2f, 0.5f, 0.1f);          // Arms
+        drawPart(cube, -0.3f, 0, 0, 0.2f, 0.5f, 0.1f);
+        drawPart(cube, 0.15f, -0.5f, 0, 0.2f, 0.5f, 0.1f);     // Legs
+        drawPart(cube, -0.15f, -0.5f, 0, 0.2f, 0.5f, 0.1f);
+    }
+
+    private void drawPart(Mesh mesh, float tx, float ty, float tz, float sx, float sy, float sz) {
+        Mat4.translationScale(partModel, tx, ty, tz, sx, sy, sz);
+        Mat4.multiply(model, runnerModel, partModel);
+        upload(uModel, model);
+        mesh.draw();
+    }
+
+    // One instanced draw per archetype: size and color are uniforms, positions an instance attribute
+    public void drawObstacles(ObstacleArchetype type, List<Obstacle> obstacles) {
+        int count = obstacles.size();
+        if (count == 0) return;
+
+        if (instanceOffsets.length < count * 3) {
+            instanceOffsets = new float[Math.max(count, instanceOffsets.length / 3 * 2) * 3];
+        }
+        for (int i = 0; i < count; i++) {
+            Obstacle obstacle = obstacles.get(i);
+            instanceOffsets[i * 3] = obstacle.getX();
+            instanceOffsets[i * 3 + 1] = obstacle.getY() + type.lift + type.height / 2;
+            instanceOffsets[i * 3 + 2] = obstacle.getZ();
+        }
+
+        boolean sphere = type.shape == ObstacleArchetype.Shape.SPHERE;
+        float unit = sphere ? 0.5f : 1.0f; // the sphere mesh has radius 1, the cube side 1
+        GL20.glUniform1i(uLit, 1);
+        GL20.glUniform3f(uColor, type.color[0], type.color[1], type.color[2]);
+        Mat4.translationScale(model, 0, 0, 0, type.width * unit, type.height * unit, type.depth * unit);
+        upload(uModel, model);
+        (sphere ? obstacleSpheres : obstacleCubes).drawInstanced(instanceOffsets, count);
+    }
+
+    public void drawText(float x, float y, CharSequence text) {
+        int count = 0;
+        int chars = Math.min(text.length(), MAX_HUD_CHARS);
+        for (int i = 0; i < chars; i++) {
+            float[] lines = HudFont.glyph(text.charAt(i));
+            if (lines == null) continue;
+
+            float originX = x + i * HudFont.ADVANCE * HudFont.SCALE;
+            for (int j = 0; j < lines.length; j += 2) {
+                int base = count * Mesh.FLOATS_PER_VERTEX;
+                hudVertices[base] = originX + lines[j] * HudFont.SCALE;
+                hudVertices[base + 1] = y + lines[j + 1] * HudFont.SCALE;
+                hudVertices[base + 2] = 0;
+                hudVertices[base + 3] = 0;
+                hudVertices[base + 4] = 0;
+                hudVertices[base + 5] = 1;
+                count++;
+            }
+        }
+        if (count == 0) return;
+
+        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        GL20.glUniform1i(uLit, 0);
+        GL20.glUniform3f(uColor, 1.0f, 1.0f, 1.0f); // White text
+        upload(uProjection, hudProjection);
+        upload(uView, identity);
+        upload(uModel, identity);
+
+        hudLines.update(hudVertices, count);
+        hudLines.draw();
+
+        upload(uProjection, projection);
+        upload(uView, view);
+        GL11.glEnable(GL11.GL_DEPTH_TEST);
+    }
+
+    public void cleanup() {
+        cube.delete();
+        sphere.delete();
+        hudLines.delete();
+        obstacleCubes.delete();
+        obstacleSpheres.delete();
+        if (terrainMesh != null) terrainMesh.delete();
+        if (laneMarkers != null) laneMarkers.delete();
+        GL20.glUseProgram(0);
+        GL20.glDeleteProgram(program);
+    }
+
+    public String getName() {
+        return "core";
+    }
+
+    private void upload(int location, float[] matrix) {
+        matrixBuffer.clear();
+        matrixBuffer.put(matrix).flip();
+        GL20.glUniformMatrix4fv(location, false, matrixBuffer);
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = compileShader(GL20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compileShader(GL20.GL_FRAGMENT_SHADER, fragmentSource);
+
+        int program = GL20.glCreateProgram();
+        GL20.glAttachShader(program, vertexShader);
+        GL20.glAttachShader(program, fragmentShader);
+        GL20.glLinkProgram(program);
+        GL20.glDeleteShader(vertexShader);
+        GL20.glDeleteShader(fragmentShader);
+
+        if (GL20.glGetProgrami(program, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+            String log = GL20.glGetProgramInfoLog(program);
+            GL20.glDeleteProgram(program);
+            throw new IllegalStateException("Failed to link shader program: " + log);
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = GL20.glCreateShader(type);
+        GL20.glShaderSource(shader, source);
+        GL20.glCompileShader(shader);
+
+        if (GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+            String log = GL20.glGetShaderInfoLog(shader);
+            GL20.glDeleteShader(shader);
+            throw new IllegalStateException("Failed to compile shader: " + log);
+        }
+        return shader;
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+class TelemetryLog {
+    static final int MAGIC = 0x4C4B5242; // "BRKL" little-endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    // Record: time (long, ns since the log opened), type (int), one int and four float fields
+    static final int RECORD_SIZE = 32;
+
+    static final int SPAWN = 1;      // i: obstacles alive, a: x, b: z, c: player z, d: archetype index
+    static final int DESPAWN = 2;    // a: x, b: z
+    static final int COLLISION = 3;  // i: death cause, a: obstacle x, b: obstacle z, c: player x, d: player y
+    static final int SCORE = 4;      // i: score
+    static final int FRAME = 5;      // i: ticks run, a: frame ms, b: obstacles alive
+    static final int STATE = 6;      // i: game state ordinal
+
+    static final String[] TYPE_NAMES = {"?", "SPAWN", "DESPAWN", "COLLISION", "SCORE", "FRAME", "STATE"};
+
+    private static final int CAPACITY = 8192; // records, power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final long DRAIN_INTERVAL_NANOS = 5_000_000L;
+
+    // Single-producer ring: only the game loop writes, only the drain thread reads
+    private final ByteBuffer ring = ByteBuffer.allocateDirect(CAPACITY * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedTail = 0;
+    private long dropped = 0;
+
+    private final long startNanos = System.nanoTime();
+    private final FileChannel channel;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    TelemetryLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        drainer = new Thread(this::drainLoop, "telemetry-drain");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Never blocks: if the drain thread has fallen a whole ring behind the record is dropped
+    void log(int type, int i, float a, float b, float c, float d) {
+        long h = head.get();
+        if (h - cachedTail >= CAPACITY) {
+            cachedTail = tail.get();
+            if (h - cachedTail >= CAPACITY) {
+                dropped++;
+                return;
+            }
+        }
+
+        int offset = (int) (h & MASK) * RECORD_SIZE;
+        ring.putLong(offset, System.nanoTime() - startNanos);
+        ring.putInt(offset + 8, type);
+        ring.putInt(offset + 12, i);
+        ring.putFloat(offset + 16, a);
+        ring.putFloat(offset + 20, b);
+        ring.putFloat(offset + 24, c);
+        ring.putFloat(offset + 28, d);
+        head.lazySet(h + 1); // publishes the record to the drain thread
+    }
+
+    void log(int type, int i) {
+        log(type, i, 0, 0, 0, 0);
+    }
+
+    private void drainLoop() {
+        ByteBuffer view = ring.duplicate();
+        try {
+            while (running) {
+                if (!drain(view)) {
+                    LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+                }
+            }
+            drain(view);
+        } catch (IOException e) {
+            System.err.println("Telemetry log stopped: " + e.getMessage());
+        }
+    }
+
+    private boolean drain(ByteBuffer view) throws IOException {
+        long t = tail.get();
+        long h = head.get();
+        if (t == h) return false;
+
+        // At most two contiguous runs: up to the end of the ring, then from its start
+        while (t < h) {
+            int first = (int) (t & MASK);
+            int count = (int) Math.min(h - t, CAPACITY - first);
+            view.limit((first + count) * RECORD_SIZE).position(first * RECORD_SIZE);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            t += count;
+            tail.lazySet(t);
+        }
+        return true;
+    }
+
+    long getDropped() { return dropped; }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+            channel.force(false);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Failed to close telemetry log: " + e.getMessage());
+        }
+        if (dropped > 0) {
+            System.err.println("Telemetry dropped " + dropped + " records");
+        }
+    }
+}
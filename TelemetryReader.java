@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Prints a telemetry log as text: java TelemetryReader telemetry.bin
+public class TelemetryReader {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java TelemetryReader <telemetry file>");
+            System.exit(2);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(TelemetryLog.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            if (header.getInt(0) != TelemetryLog.MAGIC || header.getInt(4) != TelemetryLog.VERSION) {
+                throw new IOException("Not a telemetry log (or an unsupported version): " + args[0]);
+            }
+            int recordSize = header.getInt(8);
+
+            ByteBuffer buffer = ByteBuffer.allocate(recordSize * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            StringBuilder line = new StringBuilder();
+            while (channel.read(buffer) > 0 || buffer.position() >= recordSize) {
+                buffer.flip();
+                while (buffer.remaining() >= recordSize) {
+                    int start = buffer.position();
+                    format(line, buffer.getLong(start), buffer.getInt(start + 8), buffer.getInt(start + 12),
+                            buffer.getFloat(start + 16), buffer.getFloat(start + 20),
+                            buffer.getFloat(start + 24), buffer.getFloat(start + 28));
+                    System.out.println(line);
+                    buffer.position(start + recordSize);
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    private static void format(StringBuilder line, long time, int type, int i, float a, float b, float c, float d) {
+        line.setLength(0);
+        line.append(String.format(Locale.ROOT, "%12.6f ", time / 1e9));
+        line.append(type > 0 && type < TelemetryLog.TYPE_NAMES.length ? TelemetryLog.TYPE_NAMES[type] : "TYPE" + type);
+        switch (type) {
+            case TelemetryLog.SPAWN:
+                line.append(String.format(Locale.ROOT, " alive=%d x=%.2f z=%.2f playerZ=%.2f type=%.0f", i, a, b, c, d));
+                break;
+            case TelemetryLog.DESPAWN:
+                line.append(String.format(Locale.ROOT, " x=%.2f z=%.2f", a, b));
+                break;
+            case TelemetryLog.COLLISION:
+                line.append(String.format(Locale.ROOT, " cause=%s x=%.2f z=%.2f playerX=%.2f playerY=%.2f",
+                        i >= 0 && i < GameWorld.DeathCause.values().length ? GameWorld.DeathCause.values()[i] : "?",
+                        a, b, c, d));
+                break;
+            case TelemetryLog.SCORE:
+                line.append(" score=").append(i);
+                break;
+            case TelemetryLog.FRAME:
+                line.append(String.format(Locale.ROOT, " ticks=%d ms=%.3f obstacles=%.0f", i, a, b));
+                break;
+            case TelemetryLog.STATE:
+                line.append(" state=").append(i >= 0 && i < RunnerGame.State.values().length
+                        ? RunnerGame.State.values()[i].toString() : String.valueOf(i));
+                break;
+            default:
+                line.append(String.format(Locale.ROOT, " i=%d a=%f b=%f c=%f d=%f", i, a, b, c, d));
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import org.lwjgl.opengl.GL11;
+
+class Terrain {
+    // Heightfield: COLUMNS x ROWS samples on a regular grid, two triangles per cell
+    private static final int COLUMNS = 13;
+    private static final int ROWS = 100;
+    private static final float WIDTH = 6.0f;   // 3 lanes
+    private static final float LENGTH = 100.0f;
+    private static final float MIN_X = -WIDTH / 2;
+    private static final float MIN_Z = -LENGTH / 2;
+    private static final float CELL_WIDTH = WIDTH / (COLUMNS - 1);
+    private static final float CELL_DEPTH = LENGTH / (ROWS - 1);
+    private static final float INV_CELL_WIDTH = 1 / CELL_WIDTH;
+    private static final float INV_CELL_DEPTH = 1 / CELL_DEPTH;
+
+    private final float[] heights = new float[COLUMNS * ROWS];
+    private float[] vertices;
+    private float[] normals;
+    private int[] indices;
+
+    public Terrain() {
+        createHills();
+        createMesh();
+    }
+
+    public float[] getVertices() { return vertices; }
+    public float[] getNormals() { return normals; }
+    public int[] getIndices() { return indices; }
+
+    private void createHills() {
+        for (int row = 0; row < ROWS; row++) {
+            float z = MIN_Z + row * CELL_DEPTH;
+
+            // Rolling hills along the track, plus a ramp that climbs ahead of the player and drops off
+            float h = 0.6f * (1 - (float) Math.cos(z * 2 * Math.PI / 40)) / 2;
+            if (z > 20 && z < 38) h += (z - 20) / 18 * 1.2f;
+
+            for (int col = 0; col < COLUMNS; col++) {
+                float x = MIN_X + col * CELL_WIDTH;
+                heights[row * COLUMNS + col] = h + 0.05f * x; // Slight camber across the lanes
+            }
+        }
+    }
+
+    private void createMesh() {
+        vertices = new float[COLUMNS * ROWS * 3];
+        normals = new float[COLUMNS * ROWS * 3];
+        indices = new int[(COLUMNS - 1) * (ROWS - 1) * 6];
+
+        // Create vertices, with normals from the neighbouring samples
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                int v = (row * COLUMNS + col) * 3;
+                vertices[v] = MIN_X + col * CELL_WIDTH;
+                vertices[v+1] = height(col, row);
+                vertices[v+2] = MIN_Z + row * CELL_DEPTH;
+
+                float dx = (height(col + 1, row) - height(col - 1, row)) / (2 * CELL_WIDTH);
+                float dz = (height(col, row + 1) - height(col, row - 1)) / (2 * CELL_DEPTH);
+                float length = (float) Math.sqrt(dx*dx + 1 + dz*dz);
+                normals[v] = -dx / length; normals[v+1] = 1 / length; normals[v+2] = -dz / length;
+            }
+        }
+
+        // Create indices; the diagonal runs from (col+1, row) to (col, row+1), which getTerrainHeightAt relies on
+        int i = 0;
+        for (int row = 0; row < ROWS - 1; row++) {
+            for (int col = 0; col < COLUMNS - 1; col++) {
+                int corner = row * COLUMNS + col;
+                indices[i++] = corner;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + COLUMNS;
+                indices[i++] = corner + 1;
+                indices[i++] = corner + COLUMNS + 1;
+                indices[i++] = corner + COLUMNS;
+            }
+        }
+    }
+
+    // Grid sample, clamped to the edge of the track
+    private float height(int col, int row) {
+        col = Math.max(0, Math.min(COLUMNS - 1, col));
+        row = Math.max(0, Math.min(ROWS - 1, row));
+        return heights[row * COLUMNS + col];
+    }
+
+    public void render() {
+        GL11.glColor3f(0.2f, 0.6f, 0.3f);  // Grass green color
+
+        GL11.glBegin(GL11.GL_TRIANGLES);
+        for (int i = 0; i < indices.length; i++) {
+            int vertexIndex = indices[i] * 3;
+            int normalIndex = indices[i] * 3;
+
+            GL11.glNormal3f(normals[normalIndex], normals[normalIndex+1], normals[normalIndex+2]);
+            GL11.glVertex3f(vertices[vertexIndex], vertices[vertexIndex+1], vertices[vertexIndex+2]);
+        }
+        GL11.glEnd();
+
+        // Draw lane markers
+        GL11.glColor3f(1.0f, 1.0f, 1.0f);
+        GL11.glBegin(GL11.GL_LINES);
+        for (float z = -50; z < 50; z += 2.0f) {
+            GL11.glVertex3f(-2.0f, getTerrainHeightAt(-2.0f, z) + 0.01f, z);
+            GL11.glVertex3f(-2.0f, getTerrainHeightAt(-2.0f, z + 1.0f) + 0.01f, z + 1.0f);
+
+            GL11.glVertex3f(2.0f, getTerrainHeightAt(2.0f, z) + 0.01f, z);
+            GL11.glVertex3f(2.0f, getTerrainHeightAt(2.0f, z + 1.0f) + 0.01f, z + 1.0f);
+        }
+        GL11.glEnd();
+    }
+
+    // Goes straight to the grid cell and picks its triangle from the diagonal, so the cost
+    // doesn't depend on the size of the terrain. Off the edge the border height continues
+    public float getTerrainHeightAt(float x, float z) {
+        float gx = (x - MIN_X) * INV_CELL_WIDTH;
+        float gz = (z - MIN_Z) * INV_CELL_DEPTH;
+        gx = gx < 0 ? 0 : gx > COLUMNS - 1 ? COLUMNS - 1 : gx;
+        gz = gz < 0 ? 0 : gz > ROWS - 1 ? ROWS - 1 : gz;
+        int col = gx < COLUMNS - 2 ? (int) gx : COLUMNS - 2;
+        int row = gz < ROWS - 2 ? (int) gz : ROWS - 2;
+        float u = gx - col;
+        float v = gz - row;
+
+        int corner = row * COLUMNS + col;
+        float h10 = heights[corner + 1];
+        float h01 = heights[corner + COLUMNS];
+        if (u + v <= 1) {
+            float h00 = heights[corner];
+            return h00 + u * (h10 - h00) + v * (h01 - h00);
+        }
+        float h11 = heights[corner + COLUMNS + 1];
+        return h11 + (1 - u) * (h01 - h11) + (1 - v) * (h10 - h11);
+    }
+
+    // Batched form for grounding many agents at once: out[i] = height at (xs[i], zs[i])
+    public void getTerrainHeightsAt(float[] xs, float[] zs, float[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = getTerrainHeightAt(xs[i], zs[i]);
+        }
+    }
+}